@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.jsonrpc;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared {@code RpcCodec} with the mapper built on every call,
+ * which was how the transports used to encode and decode the payloads.
+ *
+ * Run with {@code ./gradlew :library:jmh}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RpcCodecBenchmark {
+
+    private String blockResponse;
+    private Request request;
+
+    @Setup
+    public void setup() {
+        StringBuilder txs = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) txs.append(',');
+            txs.append("{\"version\":\"0x3\",\"from\":\"hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31\",")
+                    .append("\"to\":\"cx0000000000000000000000000000000000000001\",\"value\":\"0x")
+                    .append(Integer.toHexString(i + 1))
+                    .append("\",\"stepLimit\":\"0x12345\",\"timestamp\":\"0x563a6cf330136\",\"nid\":\"0x3\",")
+                    .append("\"nonce\":\"0x1\",\"dataType\":\"call\",\"data\":{\"method\":\"transfer\",")
+                    .append("\"params\":{\"_to\":\"hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31\",\"_value\":\"0x1\"}},")
+                    .append("\"signature\":\"VAia7YZ2Ji6igKWzjR2YsGa2m53nKPrfK7uXYW78QLE+ATehAVZPC40szvAiA6NEU5gCYB4c4qaQzqDh2ugcHgA=\",")
+                    .append("\"txHash\":\"0x2600770376fbf291d3d445054d45ed15280dd33c2038931aace3f7ea2ab59dbc\"}");
+        }
+        blockResponse = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"version\":\"0.1a\",\"height\":1234,"
+                + "\"block_hash\":\"1fcf7c34dc875681761bdaa5d75d770e78e8166b5c4f06c226c53300cbe85f57\","
+                + "\"prev_block_hash\":\"48757af881f76c858890fb41934bee228ad50a71707154a482826c39b8560d4b\","
+                + "\"merkle_tree_root_hash\":\"fabc1884932cf52f657475b6d62adcbce5661754ff1a9d50f13f0c49c7d48c0c\","
+                + "\"time_stamp\":1516498781094429,\"peer_id\":\"hx7e1a1ece096ef3fa44ac9692394c2e11d0017e4a\","
+                + "\"signature\":\"liAIa7aPYvBRdZAdBz6zt2Gc9vVo/4+gkDz5uscS8Mw+B5gkp6FQeJjdn6cnJwQn+w0LxbT6=\","
+                + "\"confirmed_transaction_list\":[" + txs + "]}}";
+        request = new Request(1, "icx_getBalance", new RpcObject.Builder()
+                .put("address", new RpcValue("hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31"))
+                .put("height", new RpcValue(BigInteger.valueOf(1234)))
+                .build());
+    }
+
+    @Benchmark
+    public Response decodePerCallMapper() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(RpcItem.class, new RpcItemDeserializer());
+        mapper.registerModule(module);
+        return mapper.readValue(blockResponse, Response.class);
+    }
+
+    @Benchmark
+    public Response decodeSharedCodec() throws IOException {
+        return RpcCodec.readResponse(blockResponse);
+    }
+
+    @Benchmark
+    public byte[] encodePerCallMapper() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(RpcItem.class, new RpcItemSerializer());
+        mapper.registerModule(module);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mapper.writeValue(out, request);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeSharedCodec() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RpcCodec.write(out, request);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx;
+
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Batch collects several requests and sends them as a single JSON-RPC batch.
+ *
+ * <pre>{@code
+ * Batch batch = iconService.batch();
+ * Batch.Entry<BigInteger> balance = batch.add(service -> service.getBalance(address));
+ * Batch.Entry<Block> block = batch.add(service -> service.getBlock(height));
+ * batch.execute();
+ * BigInteger value = balance.get();
+ * }</pre>
+ */
+public class Batch {
+
+    private final Provider provider;
+    private final IconService service;
+    private final List<Entry<?>> entries = new ArrayList<>();
+    private long lastId;
+
+    Batch(Provider provider, IconService parent) {
+        this.provider = provider;
+        this.service = new IconService(new Recorder(), parent);
+    }
+
+    /**
+     * Adds a request to the batch
+     *
+     * @param function the function that creates a request with the given {@code IconService}
+     * @param <T> the response type
+     * @return an {@code Entry} object that holds the result after the batch is executed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Entry<T> add(Function<IconService, Request<T>> function) {
+        Request<T> request = function.apply(service);
+        if (!(request instanceof Recorded)) {
+            throw new IllegalArgumentException("The request should be created by the given IconService");
+        }
+        Entry<T> entry = ((Recorded<T>) request).entry;
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Returns the number of requests in the batch
+     *
+     * @return the number of requests
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Executes the batch synchronously
+     *
+     * @throws IOException an exception if the batch itself could not be executed
+     */
+    public void execute() throws IOException {
+        complete(provider.requestBatch(getRequests()).execute());
+    }
+
+    /**
+     * Executes the batch asynchronously
+     *
+     * @param callback the callback is invoked when the execution is completed
+     */
+    public void execute(final Callback<Batch> callback) {
+        provider.requestBatch(getRequests()).execute(new Callback<List<Response>>() {
+            @Override
+            public void onSuccess(List<Response> result) {
+                complete(result);
+                callback.onSuccess(Batch.this);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                callback.onFailure(exception);
+            }
+        });
+    }
+
+    /**
+     * Executes the batch asynchronously and returns a future of this batch
+     *
+     * @return a {@code CompletableFuture} object completed when the responses are received
+     */
+    public CompletableFuture<Batch> executeAsync() {
+        return executeAsync(Runnable::run);
+    }
+
+    /**
+     * Executes the batch asynchronously and returns a future of this batch.
+     * The conversion of the response and the completion of the future are performed by the given executor.
+     *
+     * @param executor the executor that completes the future
+     * @return a {@code CompletableFuture} object completed when the responses are received
+     */
+    public CompletableFuture<Batch> executeAsync(Executor executor) {
+        return provider.requestBatch(getRequests()).executeAsync(executor).thenApply(responses -> {
+            complete(responses);
+            return this;
+        });
+    }
+
+    private List<foundation.icon.icx.transport.jsonrpc.Request> getRequests() {
+        if (entries.isEmpty()) {
+            throw new IllegalStateException("No request in the batch");
+        }
+        List<foundation.icon.icx.transport.jsonrpc.Request> requests = new ArrayList<>(entries.size());
+        for (Entry<?> entry : entries) {
+            requests.add(entry.request);
+        }
+        return requests;
+    }
+
+    private void complete(List<Response> responses) {
+        Map<Long, Response> responseMap = new HashMap<>();
+        for (Response response : responses) {
+            responseMap.put(response.getId(), response);
+        }
+        for (Entry<?> entry : entries) {
+            Response response = responseMap.get(entry.request.getId());
+            if (response != null) {
+                entry.complete(response);
+            } else {
+                entry.complete(new RpcError(-32603, "No response for the request"));
+            }
+        }
+    }
+
+    /**
+     * An element of the batch
+     *
+     * @param <T> the response type
+     */
+    public static class Entry<T> {
+        private final foundation.icon.icx.transport.jsonrpc.Request request;
+        private final RpcConverter<T> converter;
+        private volatile Response response;
+        private volatile RpcError error;
+
+        private Entry(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+            this.request = request;
+            this.converter = converter;
+        }
+
+        void complete(Response response) {
+            this.response = response;
+            this.error = response.getError();
+        }
+
+        void complete(RpcError error) {
+            this.error = error;
+        }
+
+        /**
+         * Returns whether the response of this element has been received
+         *
+         * @return true if the batch has been executed
+         */
+        public boolean isDone() {
+            return response != null || error != null;
+        }
+
+        /**
+         * Returns the result of this element
+         *
+         * @return the result converted by the converter of the request
+         * @throws RpcError the error that the server returned for this element
+         */
+        public T get() throws RpcError {
+            if (!isDone()) {
+                throw new IllegalStateException("The batch has not been executed");
+            }
+            if (error != null) {
+                throw error;
+            }
+            return converter.convertTo(response.getResult());
+        }
+
+        /**
+         * Returns the error of this element
+         *
+         * @return the error, or null if this element has been successful
+         */
+        public RpcError getError() {
+            return error;
+        }
+    }
+
+    private static class Recorded<T> implements Request<T> {
+        private final Entry<T> entry;
+
+        Recorded(Entry<T> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public T execute() {
+            throw new UnsupportedOperationException("The request should be executed by the batch");
+        }
+
+        @Override
+        public void execute(Callback<T> callback) {
+            throw new UnsupportedOperationException("The request should be executed by the batch");
+        }
+    }
+
+    // Records the requests made by IconService instead of sending them
+    private class Recorder implements Provider {
+        @Override
+        public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+            // Every request in a batch should have a unique id
+            long id = ++lastId;
+            return new Recorded<>(new Entry<>(
+                    new foundation.icon.icx.transport.jsonrpc.Request(id, request.getMethod(), request.getParams()),
+                    converter));
+        }
+    }
+}
@@ -44,6 +44,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * IconService which provides APIs of ICON network.
@@ -51,9 +54,14 @@ import java.util.Map;
 @SuppressWarnings("WeakerAccess")
 public class IconService {
 
+    // The ids are unique in the process so that the concurrent requests can be told apart
+    private static final AtomicLong requestIdSequence = new AtomicLong(System.currentTimeMillis());
+
     private Provider provider;
-    private final List<RpcConverter.RpcConverterFactory> converterFactories = new ArrayList<>();
-    private final Map<Class<?>, RpcConverter<?>> converterMap = new HashMap<>();
+    private final List<RpcConverter.RpcConverterFactory> converterFactories;
+    private final Map<Class<?>, RpcConverter<?>> converterMap;
+    private final Map<String, Long> timeouts = new ConcurrentHashMap<>();
+    private volatile long defaultTimeout;
 
     /**
      * Creates an IconService instance
@@ -63,6 +71,8 @@ public class IconService {
     @SuppressWarnings("unchecked")
     public IconService(Provider provider) {
         this.provider = provider;
+        this.converterFactories = new ArrayList<>();
+        this.converterMap = new HashMap<>();
         addConverterFactory(Converters.newFactory(BigInteger.class, Converters.BIG_INTEGER));
         addConverterFactory(Converters.newFactory(Boolean.class, Converters.BOOLEAN));
         addConverterFactory(Converters.newFactory(String.class, Converters.STRING));
@@ -85,6 +95,54 @@ public class IconService {
                 Base64.class, Converters.BASE64));
     }
 
+    // Creates an IconService instance sharing the converters with the given one
+    IconService(Provider provider, IconService parent) {
+        this.provider = provider;
+        this.converterFactories = parent.converterFactories;
+        this.converterMap = parent.converterMap;
+    }
+
+    private static long nextRequestId() {
+        return requestIdSequence.incrementAndGet();
+    }
+
+    /**
+     * Sets the default time limit of the requests.
+     * The provider should support {@link Request#timeout(long, TimeUnit)} to set the time limit.
+     *
+     * @param timeout the time limit, or 0 for no limit
+     * @param unit the time unit of the time limit
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.defaultTimeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * Sets the time limit of the requests of the method, which overrides the default time limit.
+     * For the wait-style methods, it is also sent to the node as the timeout of the wait.
+     *
+     * @param method the name of the method, ex) {@code icx_waitTransactionResult}
+     * @param timeout the time limit, or 0 for no limit
+     * @param unit the time unit of the time limit
+     */
+    public void setTimeout(String method, long timeout, TimeUnit unit) {
+        timeouts.put(method, unit.toNanos(timeout));
+    }
+
+    private <T> Request<T> withTimeout(Request<T> call, foundation.icon.icx.transport.jsonrpc.Request request) {
+        Long timeout = timeouts.get(request.getMethod());
+        long nanos = timeout != null ? timeout : defaultTimeout;
+        if (nanos <= 0) {
+            return call;
+        }
+        try {
+            return call.timeout(nanos, TimeUnit.NANOSECONDS);
+        } catch (UnsupportedOperationException e) {
+            // The requests of the providers without the time limit run as they did
+            return call;
+        }
+    }
+
     public void setProvider(Provider provider) {
         this.provider = provider;
     }
@@ -95,10 +153,10 @@ public class IconService {
      * @return a BigInteger object of the total number of coins in loop
      */
     public Request<BigInteger> getTotalSupply() {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getTotalSupply", null);
-        return provider.request(request, findConverter(BigInteger.class));
+        return withTimeout(provider.request(request, findConverter(BigInteger.class)), request);
     }
 
     /**
@@ -108,13 +166,13 @@ public class IconService {
      * @return a BigInteger object of the current balance for the given address in loop
      */
     public Request<BigInteger> getBalance(Address address) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("address", new RpcValue(address))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getBalance", params);
-        return provider.request(request, findConverter(BigInteger.class));
+        return withTimeout(provider.request(request, findConverter(BigInteger.class)), request);
     }
 
     /**
@@ -124,13 +182,13 @@ public class IconService {
      * @return a {@code Block} object
      */
     public Request<Block> getBlock(BigInteger height) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("height", new RpcValue(height))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getBlockByHeight", params);
-        return provider.request(request, findConverter(Block.class));
+        return withTimeout(provider.request(request, findConverter(Block.class)), request);
     }
 
     /**
@@ -140,13 +198,13 @@ public class IconService {
      * @return a {@code Block} object
      */
     public Request<Block> getBlock(Bytes hash) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("hash", new RpcValue(hash))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getBlockByHash", params);
-        return provider.request(request, findConverter(Block.class));
+        return withTimeout(provider.request(request, findConverter(Block.class)), request);
     }
 
     /**
@@ -155,10 +213,10 @@ public class IconService {
      * @return a {@code Block} object
      */
     public Request<Block> getLastBlock() {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getLastBlock", null);
-        return provider.request(request, findConverter(Block.class));
+        return withTimeout(provider.request(request, findConverter(Block.class)), request);
     }
 
     /**
@@ -171,14 +229,14 @@ public class IconService {
     public Request<List<ScoreApi>> getScoreApi(Address scoreAddress) {
         if (!IconKeys.isContractAddress(scoreAddress))
             throw new IllegalArgumentException("Only the contract address can be called.");
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("address", new RpcValue(scoreAddress))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getScoreApi", params);
         Class<List<ScoreApi>> listClass = ((Class) List.class);
-        return provider.request(request, findConverter(listClass));
+        return withTimeout(provider.request(request, findConverter(listClass)), request);
     }
 
     /**
@@ -188,13 +246,13 @@ public class IconService {
      * @return a {@code ConfirmedTransaction} object
      */
     public Request<ConfirmedTransaction> getTransaction(Bytes hash) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("txHash", new RpcValue(hash))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getTransactionByHash", params);
-        return provider.request(request, findConverter(ConfirmedTransaction.class));
+        return withTimeout(provider.request(request, findConverter(ConfirmedTransaction.class)), request);
     }
 
     /**
@@ -204,13 +262,13 @@ public class IconService {
      * @return a {@code TransactionResult} object
      */
     public Request<TransactionResult> getTransactionResult(Bytes hash) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("txHash", new RpcValue(hash))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getTransactionResult", params);
-        return provider.request(request, findConverter(TransactionResult.class));
+        return withTimeout(provider.request(request, findConverter(TransactionResult.class)), request);
     }
 
     /**
@@ -221,10 +279,10 @@ public class IconService {
      * @return a {@code Request} object that can execute the request
      */
     public <T> Request<T> call(Call<T> call) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_call", call.getProperties());
-        return provider.request(request, findConverter(call.responseType()));
+        return withTimeout(provider.request(request, findConverter(call.responseType())), request);
     }
 
     /**
@@ -234,10 +292,10 @@ public class IconService {
      * @return a {@code Request} object that can execute the request (return type is txHash)
      */
     public Request<Bytes> sendTransaction(SignedTransaction signedTransaction) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_sendTransaction", signedTransaction.getProperties());
-        return provider.request(request, findConverter(Bytes.class));
+        return withTimeout(provider.request(request, findConverter(Bytes.class)), request);
     }
 
     /**
@@ -249,47 +307,49 @@ public class IconService {
      * @since 0.9.12
      */
     public Request<BigInteger> estimateStep(Transaction transaction) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "debug_estimateStep", transaction.getProperties());
-        return provider.request(request, findConverter(BigInteger.class));
+        return withTimeout(provider.request(request, findConverter(BigInteger.class)), request);
     }
 
     // Below APIs are additional features for core2
 
     /**
      * Sends a transaction like {@code sendTransaction}, then waits for some time to get the result.
-     * The user may set a specific timeout in the HTTP header, but it cannot exceed the node's max timeout limit.
+     * The user may set a specific timeout with {@link Request#timeout(long, TimeUnit)}, which is sent in the HTTP header,
+     * but it cannot exceed the node's max timeout limit.
      * If a timeout did not set by the user, the node uses its {@code defaultWaitTimeout} setting.
      *
      * @param signedTransaction a transaction that was signed with the sender's wallet
      * @return a {@code TransactionResult} object
      */
     public Request<TransactionResult> sendTransactionAndWait(SignedTransaction signedTransaction) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_sendTransactionAndWait", signedTransaction.getProperties());
-        return provider.request(request, findConverter(TransactionResult.class));
+        return withTimeout(provider.request(request, findConverter(TransactionResult.class)), request);
     }
 
     /**
      * Gets the result of a transaction specified by the transaction hash like {@code getTransactionResult},
      * but waits for some time to get the transaction result instead of returning immediately
      * if there is no finalized result.
-     * The user may set a specific timeout in the HTTP header, but it cannot exceed the node's max timeout limit.
+     * The user may set a specific timeout with {@link Request#timeout(long, TimeUnit)}, which is sent in the HTTP header,
+     * but it cannot exceed the node's max timeout limit.
      * If a timeout did not set by the user, the node uses its {@code defaultWaitTimeout} setting.
      *
      * @param hash a transaction hash
      * @return a {@code TransactionResult} object
      */
     public Request<TransactionResult> waitTransactionResult(Bytes hash) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("txHash", new RpcValue(hash))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_waitTransactionResult", params);
-        return provider.request(request, findConverter(TransactionResult.class));
+        return withTimeout(provider.request(request, findConverter(TransactionResult.class)), request);
     }
 
     /**
@@ -301,14 +361,14 @@ public class IconService {
      * @return a {@code Request} object that can execute the request
      */
     public Request<Base64> getDataByHash(Bytes hash) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("hash", new RpcValue(hash))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request =
                 new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getDataByHash", params);
-        return provider.request(request, findConverter(Base64.class));
+        return withTimeout(provider.request(request, findConverter(Base64.class)), request);
     }
 
     /**
@@ -318,13 +378,13 @@ public class IconService {
      * @return a {@code Request} object that can execute the request
      */
     public Request<Base64> getBlockHeaderByHeight(BigInteger height) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("height", new RpcValue(height))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getBlockHeaderByHeight", params);
-        return provider.request(request, findConverter(Base64.class));
+        return withTimeout(provider.request(request, findConverter(Base64.class)), request);
     }
 
     /**
@@ -334,13 +394,13 @@ public class IconService {
      * @return a {@code Request} object that can execute the request
      */
     public Request<Base64> getVotesByHeight(BigInteger height) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("height", new RpcValue(height))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getVotesByHeight", params);
-        return provider.request(request, findConverter(Base64.class));
+        return withTimeout(provider.request(request, findConverter(Base64.class)), request);
     }
 
     /**
@@ -351,14 +411,14 @@ public class IconService {
      * @return a {@code Request} object that can execute the request
      */
     public Request<Base64[]> getProofForResult(Bytes hash, BigInteger index) {
-        long requestId = System.currentTimeMillis();
+        long requestId = nextRequestId();
         RpcObject params = new RpcObject.Builder()
                 .put("hash", new RpcValue(hash))
                 .put("index", new RpcValue(index))
                 .build();
         foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
                 requestId, "icx_getProofForResult", params);
-        return provider.request(request, findConverter(Base64[].class));
+        return withTimeout(provider.request(request, findConverter(Base64[].class)), request);
     }
 
     /**
@@ -372,6 +432,35 @@ public class IconService {
         return provider.monitor(ms, findConverter(BlockNotification.class));
     }
 
+    /**
+     * Gets a monitor for block notification, which may reconnect when the connection drops
+     *
+     * @param height the start height
+     * @param resilient true to reconnect and to fill the missing blocks with the default settings
+     *                  of {@link ResilientBlockMonitor}, or false for a monitor on a single connection
+     * @return a {@code Monitor} object
+     */
+    public Monitor<BlockNotification> monitorBlocks(BigInteger height, boolean resilient) {
+        if (resilient) {
+            return new ResilientBlockMonitor.Builder(this, height).build();
+        }
+        return monitorBlocks(height);
+    }
+
+    /**
+     * Gets a monitor for block notification with the indexes of the events matched with the filters
+     *
+     * @param height the start height
+     * @param eventFilters the filters of the events
+     * @return a {@code Monitor} object
+     * @see BlockNotification#getIndexes()
+     * @see SubscriptionManager
+     */
+    public Monitor<BlockNotification> monitorBlocks(BigInteger height, EventMonitorSpec.EventFilter[] eventFilters) {
+        MonitorSpec ms = new BlockMonitorSpec(height, eventFilters);
+        return provider.monitor(ms, findConverter(BlockNotification.class));
+    }
+
     /**
      * Gets a monitor for event notification
      *
@@ -387,6 +476,16 @@ public class IconService {
         return provider.monitor(ms, findConverter(EventNotification.class));
     }
 
+    /**
+     * Creates a batch that sends several requests in a single round-trip
+     *
+     * @return a {@code Batch} object
+     * @see Batch
+     */
+    public Batch batch() {
+        return new Batch(provider, this);
+    }
+
     @SuppressWarnings("unchecked")
     private <T> RpcConverter<T> findConverter(Class<T> type) {
         RpcConverter<T> converter = (RpcConverter<T>) converterMap.get(type);
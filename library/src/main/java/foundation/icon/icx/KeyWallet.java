@@ -24,6 +24,7 @@ import foundation.icon.icx.crypto.KeystoreException;
 import foundation.icon.icx.crypto.KeystoreFile;
 import foundation.icon.icx.data.Address;
 import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.jfr.FlightEvents;
 
 import java.io.File;
 import java.io.IOException;
@@ -112,9 +113,14 @@ public class KeyWallet implements Wallet {
     @Override
     public byte[] sign(byte[] data) {
         checkArgument(data, "hash not found");
+        FlightEvents.Event event = FlightEvents.SIGN.begin();
         ECDSASignature signature = new ECDSASignature(privateKey);
         BigInteger[] sig = signature.generateSignature(data);
-        return signature.recoverableSerialize(sig, data);
+        byte[] result = signature.recoverableSerialize(sig, data);
+        if (event != null) {
+            event.commit();
+        }
+        return result;
     }
 
     /**
@@ -20,6 +20,8 @@ import foundation.icon.icx.transport.jsonrpc.RpcConverter;
 import foundation.icon.icx.transport.monitor.Monitor;
 import foundation.icon.icx.transport.monitor.MonitorSpec;
 
+import java.util.List;
+
 /**
  * The {@code Provider} class transports the request and receives the response.
  */
@@ -35,6 +37,19 @@ public interface Provider {
      */
     <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter);
 
+    /**
+     * Prepares to execute the requests as a single JSON-RPC batch.
+     * The result has a response for each request, and each response can be
+     * matched to its request by the id.
+     *
+     * @param requests the requests to send, each of them should have a unique id
+     * @return a {@code Request} object to be executed
+     */
+    default Request<List<foundation.icon.icx.transport.jsonrpc.Response>> requestBatch(
+            List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Prepares a Websocket monitor to get notification
      *
@@ -17,6 +17,9 @@
 package foundation.icon.icx;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Request class executes the request that has been prepared
@@ -37,4 +40,68 @@ public interface Request<T> {
      * @param callback the callback is invoked when the execution is completed
      */
     void execute(Callback<T> callback);
+
+    /**
+     * Executes asynchronously and returns a future of the result.
+     * The future is completed on the thread which receives the response.
+     *
+     * @return a {@code CompletableFuture} object of the result
+     */
+    default CompletableFuture<T> executeAsync() {
+        return executeAsync(Runnable::run);
+    }
+
+    /**
+     * Executes asynchronously and returns a future of the result.
+     * The conversion of the response and the completion of the future are performed by the given executor.
+     *
+     * @param executor the executor that completes the future
+     * @return a {@code CompletableFuture} object of the result
+     */
+    default CompletableFuture<T> executeAsync(final Executor executor) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        execute(new Callback<T>() {
+            @Override
+            public void onSuccess(final T result) {
+                try {
+                    executor.execute(() -> future.complete(result));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(final Exception exception) {
+                try {
+                    executor.execute(() -> future.completeExceptionally(exception));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(exception);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Cancels the request.
+     * The execution in progress fails with an {@code IOException}, and so do the later executions.
+     */
+    default void cancel() {
+        throw new UnsupportedOperationException("The request cannot be canceled");
+    }
+
+    /**
+     * Sets the time limit of every execution of this request, which covers the whole execution
+     * from sending the request to converting the response.
+     * The execution fails with an {@code InterruptedIOException} if it does not complete in time.
+     * For the wait-style methods like {@code icx_waitTransactionResult}, the time limit is sent to the node
+     * as the timeout of the wait.
+     *
+     * @param timeout the time limit, or 0 for no limit
+     * @param unit the time unit of the time limit
+     * @return this request
+     */
+    default Request<T> timeout(long timeout, TimeUnit unit) {
+        throw new UnsupportedOperationException("The request does not support the time limit");
+    }
 }
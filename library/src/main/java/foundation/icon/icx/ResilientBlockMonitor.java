@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx;
+
+import foundation.icon.icx.data.Block;
+import foundation.icon.icx.data.BlockNotification;
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import foundation.icon.icx.transport.monitor.Monitor;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * The {@code ResilientBlockMonitor} class monitors the blocks over the connections which are
+ * made again whenever they drop.
+ *
+ * <p>It remembers the height of the last delivered block, and a new connection starts at the next height
+ * after a jittered exponential backoff. If the node skips some heights, the missing blocks are fetched
+ * by {@link IconService#getBlock(BigInteger)}, so the listener gets every block once in the order of the heights.
+ * A connection which delivers nothing within the stall timeout is considered as dead and replaced.
+ * Use {@link foundation.icon.icx.transport.http.HttpProvider#setMonitorPingInterval(long, TimeUnit)}
+ * to detect the half-open connections sooner.
+ *
+ * <p>The listener gets {@link Listener#onStart()} once for the first connection, and
+ * {@link Listener#onError(long)} only when it gives up after the maximum number of the attempts.
+ * Starting it again after {@link #stop()} resumes from the block after the last delivered one.
+ */
+public class ResilientBlockMonitor implements Monitor<BlockNotification> {
+
+    private final IconService iconService;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final long stallTimeout;
+    private final int maxAttempts;
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private final AtomicLong filledCount = new AtomicLong();
+
+    private Listener<BlockNotification> listener;
+    private ScheduledExecutorService scheduler;
+    private Monitor<BlockNotification> current;
+    private BigInteger lastHeight;
+    private int generation;
+    private int attempts;
+    private boolean running;
+    private boolean started;
+    private long lastActivity;
+
+    private ResilientBlockMonitor(Builder builder) {
+        this.iconService = builder.iconService;
+        this.lastHeight = builder.height.subtract(BigInteger.ONE);
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.stallTimeout = builder.stallTimeout;
+        this.maxAttempts = builder.maxAttempts;
+    }
+
+    @Override
+    public boolean start(Listener<BlockNotification> listener) {
+        begin(listener);
+        return connect();
+    }
+
+    /**
+     * Starts the monitor without waiting for the handshake of the first connection, which is limited
+     * by the timeout. The connections made again after the failures are started on its own thread.
+     */
+    @Override
+    public CompletableFuture<Boolean> startAsync(Listener<BlockNotification> listener, long timeout, TimeUnit unit) {
+        begin(listener);
+        return open((monitor, relay) -> monitor.startAsync(relay, timeout, unit));
+    }
+
+    private synchronized void begin(Listener<BlockNotification> listener) {
+        if (running) {
+            throw new IllegalStateException("Already started");
+        }
+        this.listener = listener;
+        this.running = true;
+        this.started = false;
+        this.attempts = 0;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "icx-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (stallTimeout > 0) {
+            long period = Math.max(stallTimeout / 2, TimeUnit.MILLISECONDS.toNanos(1));
+            scheduler.scheduleAtFixedRate(this::checkStall, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        Monitor<BlockNotification> monitor;
+        synchronized (this) {
+            if (!running) {
+                throw new IllegalStateException("Not started");
+            }
+            running = false;
+            generation++;
+            monitor = current;
+            current = null;
+            scheduler.shutdownNow();
+        }
+        close(monitor);
+        listener.onClose();
+    }
+
+    /**
+     * Returns the height of the last block delivered to the listener
+     *
+     * @return the height of the block
+     */
+    public synchronized BigInteger getLastHeight() {
+        return lastHeight;
+    }
+
+    /**
+     * Returns the number of the connections made again after the failures
+     *
+     * @return the number of the connections
+     */
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    /**
+     * Returns the number of the missing blocks fetched from the node
+     *
+     * @return the number of the blocks
+     */
+    public long getFilledCount() {
+        return filledCount.get();
+    }
+
+    private boolean connect() {
+        return open((monitor, relay) -> CompletableFuture.completedFuture(monitor.start(relay))).join();
+    }
+
+    // Opens a connection at the height after the last delivered one, and replaces it unless it starts
+    private CompletableFuture<Boolean> open(BiFunction<Monitor<BlockNotification>, Listener<BlockNotification>,
+            CompletableFuture<Boolean>> starter) {
+        Monitor<BlockNotification> monitor;
+        int gen;
+        synchronized (this) {
+            if (!running) {
+                return CompletableFuture.completedFuture(false);
+            }
+            gen = ++generation;
+            monitor = iconService.monitorBlocks(lastHeight.add(BigInteger.ONE));
+            current = monitor;
+            lastActivity = System.nanoTime();
+        }
+        CompletableFuture<Boolean> handshake;
+        try {
+            handshake = starter.apply(monitor, new Relay(gen));
+        } catch (RuntimeException e) {
+            handshake = CompletableFuture.completedFuture(false);
+        }
+        return handshake.handle((started, ex) -> {
+            boolean connected = ex == null && started;
+            if (!connected) {
+                fail(gen, 0);
+            }
+            return connected;
+        });
+    }
+
+    // Replaces the connection of the generation, ignoring the failures of the replaced connections.
+    // The inner monitor is closed without the lock, because it calls back with its own lock held.
+    private void fail(int gen, long code) {
+        Monitor<BlockNotification> monitor;
+        boolean exhausted;
+        int attempt;
+        synchronized (this) {
+            if (gen != generation || !running) {
+                return;
+            }
+            generation++;
+            monitor = current;
+            current = null;
+            attempt = ++attempts;
+            exhausted = maxAttempts > 0 && attempt >= maxAttempts;
+            if (exhausted) {
+                running = false;
+                scheduler.shutdownNow();
+            } else {
+                reconnectCount.incrementAndGet();
+                scheduler.schedule(this::connect, backoff(attempt), TimeUnit.NANOSECONDS);
+            }
+        }
+        close(monitor);
+        if (exhausted) {
+            listener.onError(code);
+        }
+    }
+
+    // Full jitter: a random delay up to the exponential backoff of the attempt
+    private long backoff(int attempt) {
+        long backoff = initialBackoff << Math.min(attempt - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoff) {
+            backoff = maxBackoff;
+        }
+        return ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    private void checkStall() {
+        int gen;
+        synchronized (this) {
+            if (current == null || System.nanoTime() - lastActivity < stallTimeout) {
+                return;
+            }
+            gen = generation;
+        }
+        fail(gen, 0);
+    }
+
+    private synchronized void onStart(int gen) {
+        if (gen != generation || !running) {
+            return;
+        }
+        attempts = 0;
+        lastActivity = System.nanoTime();
+        if (!started) {
+            started = true;
+            listener.onStart();
+        }
+    }
+
+    // Delivers the missing blocks before the notification, and drops the ones already delivered.
+    // The missing blocks are fetched without the lock, so that stop() and the stall check do not wait
+    // for the whole gap, and each of them counts as an activity of the connection once it is delivered.
+    private void deliver(int gen, BlockNotification notification) throws IOException {
+        BigInteger height = notification.getHeight();
+        BigInteger next;
+        synchronized (this) {
+            if (gen != generation || !running) {
+                return;
+            }
+            lastActivity = System.nanoTime();
+            if (height == null || height.compareTo(lastHeight) <= 0) {
+                return;
+            }
+            next = lastHeight.add(BigInteger.ONE);
+        }
+        for (BigInteger h = next; h.compareTo(height) < 0; h = h.add(BigInteger.ONE)) {
+            if (!isCurrent(gen)) {
+                return;
+            }
+            BlockNotification filled = toNotification(iconService.getBlock(h).execute());
+            synchronized (this) {
+                if (gen != generation || !running) {
+                    return;
+                }
+                filledCount.incrementAndGet();
+                lastHeight = h;
+                listener.onEvent(filled);
+                lastActivity = System.nanoTime();
+            }
+        }
+        synchronized (this) {
+            if (gen != generation || !running) {
+                return;
+            }
+            lastHeight = height;
+            listener.onEvent(notification);
+            lastActivity = System.nanoTime();
+        }
+    }
+
+    private synchronized boolean isCurrent(int gen) {
+        return gen == generation && running;
+    }
+
+    private static BlockNotification toNotification(Block block) {
+        RpcObject properties = new RpcObject.Builder()
+                .put("hash", new RpcValue(block.getBlockHash()))
+                .put("height", new RpcValue(block.getHeight()))
+                .build();
+        return Converters.BLOCK_NOTIFICATION.convertTo(properties);
+    }
+
+    private static void close(Monitor<BlockNotification> monitor) {
+        if (monitor == null) {
+            return;
+        }
+        try {
+            monitor.stop();
+        } catch (RuntimeException ignored) {
+            // The connection is already closed
+        }
+    }
+
+    private class Relay implements Listener<BlockNotification> {
+        private final int gen;
+
+        Relay(int gen) {
+            this.gen = gen;
+        }
+
+        @Override
+        public void onStart() {
+            ResilientBlockMonitor.this.onStart(gen);
+        }
+
+        @Override
+        public void onEvent(BlockNotification notification) {
+            try {
+                deliver(gen, notification);
+            } catch (IOException | RuntimeException e) {
+                fail(gen, 0);
+            }
+        }
+
+        @Override
+        public void onError(long code) {
+            fail(gen, code);
+        }
+
+        @Override
+        public void onClose() {
+            fail(gen, 0);
+        }
+    }
+
+    /**
+     * Builder for ResilientBlockMonitor
+     */
+    public static class Builder {
+        private final IconService iconService;
+        private final BigInteger height;
+        private long initialBackoff = TimeUnit.MILLISECONDS.toNanos(500);
+        private long maxBackoff = TimeUnit.SECONDS.toNanos(30);
+        private long stallTimeout = TimeUnit.SECONDS.toNanos(30);
+        private int maxAttempts;
+
+        /**
+         * Creates a builder
+         *
+         * @param iconService the service to open the monitors and to fetch the missing blocks
+         * @param height the height of the first block to deliver
+         */
+        public Builder(IconService iconService, BigInteger height) {
+            this.iconService = iconService;
+            this.height = height;
+        }
+
+        /**
+         * Sets the backoff before the first reconnection and its upper bound.
+         * The backoff doubles for every failed attempt and the actual delay is a random value up to it.
+         *
+         * @param initial the initial backoff
+         * @param max the maximum backoff
+         * @param unit the time unit of the backoffs
+         * @return this builder
+         */
+        public Builder backoff(long initial, long max, TimeUnit unit) {
+            if (initial <= 0 || max < initial) {
+                throw new IllegalArgumentException("The backoffs should be 0 < initial <= max");
+            }
+            this.initialBackoff = unit.toNanos(initial);
+            this.maxBackoff = unit.toNanos(max);
+            return this;
+        }
+
+        /**
+         * Sets how long a connection may deliver nothing before it is replaced.
+         * It should be long enough for several blocks to be made.
+         *
+         * @param timeout the timeout, or 0 to disable the detection
+         * @param unit the time unit of the timeout
+         * @return this builder
+         */
+        public Builder stallTimeout(long timeout, TimeUnit unit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("timeout should not be negative");
+            }
+            this.stallTimeout = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the number of the consecutive failed attempts after which the monitor gives up
+         *
+         * @param maxAttempts the number of the attempts, or 0 to retry forever
+         * @return this builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 0) {
+                throw new IllegalArgumentException("maxAttempts should not be negative");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public ResilientBlockMonitor build() {
+            return new ResilientBlockMonitor(this);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package foundation.icon.icx;
 
+import foundation.icon.icx.jfr.FlightEvents;
 import foundation.icon.icx.transport.jsonrpc.RpcArray;
 import foundation.icon.icx.transport.jsonrpc.RpcItem;
 import foundation.icon.icx.transport.jsonrpc.RpcObject;
@@ -72,6 +73,7 @@ public class SignedTransaction {
      * Create the parameters including signature
      */
     private void createProperties(BigInteger stepLimit) {
+        FlightEvents.Event event = FlightEvents.SIGNED_TRANSACTION.begin();
         RpcObject.Builder builder = new RpcObject.Builder();
         RpcObject object = getTransactionProperties();
         for (String key : object.keySet()) {
@@ -84,6 +86,9 @@ public class SignedTransaction {
         String signature = Base64.toBase64String(getSignature(builder.build()));
         builder.put("signature", new RpcValue(signature));
         this.properties = builder.build();
+        if (event != null) {
+            event.set("from", String.valueOf(transaction.getFrom())).commit();
+        }
     }
 
     /**
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx;
+
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.BlockNotification;
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.data.EventNotification;
+import foundation.icon.icx.transport.jsonrpc.RpcArray;
+import foundation.icon.icx.transport.jsonrpc.RpcCodec;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import foundation.icon.icx.transport.monitor.EventMonitorSpec;
+import foundation.icon.icx.transport.monitor.Monitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code SubscriptionManager} class monitors the events of many subscriptions over a single connection.
+ *
+ * <p>The filters of all the subscriptions are sent in a block monitor, and the events matched with each filter
+ * are delivered to the listeners of the subscriptions with the filter. The subscriptions with the same filter
+ * share it. Whenever the set of the filters changes, the connection is replaced by a new one which starts
+ * at the block after the last notified one, so the subscriptions which stay do not miss or repeat any block.
+ * The changes made while a replacement is waiting to start are covered by it, so a burst of them
+ * replaces the connection once.
+ *
+ * <p>If the connection fails or closes, all the subscriptions get the error or the close as they do
+ * with their own monitors, and they are removed. The listeners may stop the subscriptions while they
+ * handle the notifications, but they should not start the subscriptions of the same manager.
+ */
+public class SubscriptionManager implements Closeable {
+
+    private static final long HANDSHAKE_TIMEOUT = TimeUnit.SECONDS.toNanos(3);
+
+    private final IconService iconService;
+    private final ExecutorService executor;
+    private final Object deliveryLock = new Object();
+    private final Map<String, Slot> slots = new LinkedHashMap<>();
+    private final AtomicLong resubscribeCount = new AtomicLong();
+
+    private Monitor<BlockNotification> current;
+    // The resubscribe queued and not started yet, which covers all the changes made before it starts
+    private CompletableFuture<Boolean> pending;
+    private long pendingTimeout;
+    private BigInteger lastHeight;
+    private int generation;
+    private boolean connected;
+    private boolean closed;
+
+    /**
+     * Creates a manager monitoring the events from the given height
+     *
+     * @param iconService the service to open the block monitors
+     * @param height the height of the first block to monitor
+     */
+    public SubscriptionManager(IconService iconService, BigInteger height) {
+        this.iconService = iconService;
+        this.lastHeight = height.subtract(BigInteger.ONE);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "icx-subscriptions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets a monitor for event notification which shares the connection of the manager
+     *
+     * @param event the event signature
+     * @param addr the address of SCORE
+     * @param indexed the array of arguments to match with indexed parameters of event
+     * @param data the array of arguments to match with non-indexed parameters of event
+     * @return a {@code Monitor} object
+     * @see IconService#monitorEvents(BigInteger, String, Address, String[], String[])
+     */
+    public Monitor<EventNotification> monitorEvents(String event, Address addr, String[] indexed, String[] data) {
+        return new Subscription(new EventMonitorSpec.EventFilter(event, addr, indexed, data));
+    }
+
+    /**
+     * Returns the number of the distinct filters sent to the node
+     *
+     * @return the number of the filters
+     */
+    public synchronized int getFilterCount() {
+        return slots.size();
+    }
+
+    /**
+     * Returns the number of the started subscriptions
+     *
+     * @return the number of the subscriptions
+     */
+    public synchronized int getSubscriptionCount() {
+        int count = 0;
+        for (Slot slot : slots.values()) {
+            count += slot.subscriptions.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of the connections replaced because the filters changed
+     *
+     * @return the number of the connections
+     */
+    public long getResubscribeCount() {
+        return resubscribeCount.get();
+    }
+
+    /**
+     * Closes the connection, and all the subscriptions get {@link Monitor.Listener#onClose()}
+     */
+    @Override
+    public void close() {
+        Monitor<BlockNotification> monitor;
+        List<Subscription> subscriptions;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            generation++;
+            monitor = current;
+            current = null;
+            subscriptions = clear();
+        }
+        executor.shutdown();
+        close(monitor);
+        end(subscriptions, 0, false);
+    }
+
+    private CompletableFuture<Boolean> add(Subscription subscription, long timeout) {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Closed");
+            }
+            Slot slot = slots.get(subscription.key);
+            if (slot == null) {
+                slot = new Slot(subscription.filter);
+                slots.put(subscription.key, slot);
+                slot.subscriptions.add(subscription);
+                // Each caller gets its own future, so cancelling it does not affect the others
+                return queueResubscribe(timeout).thenApply(started -> started);
+            }
+            slot.subscriptions.add(subscription);
+        }
+        return CompletableFuture.supplyAsync(() -> started(subscription), executor);
+    }
+
+    // Removes the subscription, and returns false if it has not been started
+    private boolean remove(Subscription subscription) {
+        synchronized (this) {
+            Slot slot = slots.get(subscription.key);
+            if (slot == null || !slot.subscriptions.remove(subscription)) {
+                return false;
+            }
+            if (slot.subscriptions.isEmpty()) {
+                slots.remove(subscription.key);
+                if (!closed) {
+                    // It does not wait, so that the listeners may stop the subscriptions
+                    queueResubscribe(HANDSHAKE_TIMEOUT);
+                }
+            }
+            return true;
+        }
+    }
+
+    // Called with the lock held. Queues a resubscribe unless there is one queued already,
+    // which picks up this change as well, so a burst of changes replaces the connection once.
+    private CompletableFuture<Boolean> queueResubscribe(long timeout) {
+        pendingTimeout = Math.max(pendingTimeout, timeout);
+        if (pending == null) {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            pending = future;
+            executor.execute(() -> {
+                try {
+                    future.complete(resubscribe());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        return pending;
+    }
+
+    // Replaces the connection with the one for the current filters, which the executor runs one at a time.
+    // It waits for the handshake within the timeout, so the next one sees whether it is connected.
+    private boolean resubscribe() {
+        Monitor<BlockNotification> previous;
+        Monitor<BlockNotification> next = null;
+        Relay relay = null;
+        long timeout;
+        synchronized (this) {
+            // The changes from now on queue another one
+            pending = null;
+            timeout = pendingTimeout;
+            pendingTimeout = 0;
+            if (closed) {
+                return false;
+            }
+            previous = current;
+            generation++;
+            connected = false;
+            Slot[] active = slots.values().toArray(new Slot[0]);
+            if (active.length > 0) {
+                EventMonitorSpec.EventFilter[] filters = new EventMonitorSpec.EventFilter[active.length];
+                for (int i = 0; i < active.length; i++) {
+                    filters[i] = active[i].filter;
+                }
+                next = iconService.monitorBlocks(lastHeight.add(BigInteger.ONE), filters);
+                relay = new Relay(generation, active);
+                if (previous != null) {
+                    resubscribeCount.incrementAndGet();
+                }
+            }
+            current = next;
+        }
+        // The previous connection may be in the callback of a listener, so it is closed aside
+        if (previous != null) {
+            final Monitor<BlockNotification> monitor = previous;
+            CompletableFuture.runAsync(() -> close(monitor));
+        }
+        if (next == null) {
+            return false;
+        }
+        boolean started;
+        try {
+            started = next.startAsync(relay, timeout, TimeUnit.NANOSECONDS).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            started = false;
+        } catch (ExecutionException | RuntimeException e) {
+            started = false;
+        }
+        if (!started) {
+            relay.onError(0);
+        }
+        return started;
+    }
+
+    private boolean started(Subscription subscription) {
+        synchronized (this) {
+            if (!connected) {
+                return false;
+            }
+        }
+        synchronized (deliveryLock) {
+            if (!subscription.started) {
+                subscription.started = true;
+                subscription.listener.onStart();
+            }
+        }
+        return true;
+    }
+
+    // Called with the lock held
+    private List<Subscription> clear() {
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (Slot slot : slots.values()) {
+            subscriptions.addAll(slot.subscriptions);
+        }
+        slots.clear();
+        return subscriptions;
+    }
+
+    private void end(List<Subscription> subscriptions, long code, boolean error) {
+        synchronized (deliveryLock) {
+            for (Subscription subscription : subscriptions) {
+                if (error) {
+                    subscription.listener.onError(code);
+                } else {
+                    subscription.listener.onClose();
+                }
+            }
+        }
+    }
+
+    private static EventNotification toNotification(BlockNotification block, BigInteger index, BigInteger[] events) {
+        RpcArray.Builder array = new RpcArray.Builder();
+        for (BigInteger event : events) {
+            array.add(new RpcValue(event));
+        }
+        RpcObject properties = new RpcObject.Builder()
+                .put("hash", new RpcValue(block.getHash()))
+                .put("height", new RpcValue(block.getHeight()))
+                .put("index", new RpcValue(index))
+                .put("events", array.build())
+                .build();
+        return Converters.EVENT_NOTIFICATION.convertTo(properties);
+    }
+
+    private static void close(Monitor<BlockNotification> monitor) {
+        if (monitor == null) {
+            return;
+        }
+        try {
+            monitor.stop();
+        } catch (RuntimeException ignored) {
+            // The connection is already closed
+        }
+    }
+
+    private static final class Slot {
+        final EventMonitorSpec.EventFilter filter;
+        final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        Slot(EventMonitorSpec.EventFilter filter) {
+            this.filter = filter;
+        }
+    }
+
+    // Delivers the notifications of a connection to the subscriptions of its filters
+    private class Relay implements Monitor.Listener<BlockNotification> {
+        private final int gen;
+        private final Slot[] active;
+
+        Relay(int gen, Slot[] active) {
+            this.gen = gen;
+            this.active = active;
+        }
+
+        @Override
+        public void onStart() {
+            synchronized (deliveryLock) {
+                synchronized (SubscriptionManager.this) {
+                    if (gen != generation) {
+                        return;
+                    }
+                    connected = true;
+                }
+                for (Slot slot : active) {
+                    for (Subscription subscription : slot.subscriptions) {
+                        if (!subscription.started) {
+                            subscription.started = true;
+                            subscription.listener.onStart();
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onEvent(BlockNotification notification) {
+            synchronized (deliveryLock) {
+                BigInteger height = notification.getHeight();
+                synchronized (SubscriptionManager.this) {
+                    if (gen != generation || height == null || height.compareTo(lastHeight) <= 0) {
+                        return;
+                    }
+                    lastHeight = height;
+                }
+                BigInteger[][] indexes = notification.getIndexes();
+                BigInteger[][][] events = notification.getEvents();
+                if (indexes == null || events == null) {
+                    return;
+                }
+                for (int i = 0; i < active.length && i < indexes.length; i++) {
+                    for (int j = 0; j < indexes[i].length; j++) {
+                        EventNotification event = toNotification(notification, indexes[i][j], events[i][j]);
+                        for (Subscription subscription : active[i].subscriptions) {
+                            subscription.listener.onEvent(event);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onError(long code) {
+            end(code, true);
+        }
+
+        @Override
+        public void onClose() {
+            end(0, false);
+        }
+
+        private void end(long code, boolean error) {
+            Monitor<BlockNotification> monitor;
+            List<Subscription> subscriptions;
+            synchronized (SubscriptionManager.this) {
+                if (gen != generation) {
+                    return;
+                }
+                generation++;
+                connected = false;
+                monitor = current;
+                current = null;
+                subscriptions = clear();
+            }
+            CompletableFuture.runAsync(() -> close(monitor));
+            SubscriptionManager.this.end(subscriptions, code, error);
+        }
+    }
+
+    private class Subscription implements Monitor<EventNotification> {
+        private final EventMonitorSpec.EventFilter filter;
+        private final String key;
+        private Listener<EventNotification> listener;
+        private boolean started;
+
+        Subscription(EventMonitorSpec.EventFilter filter) {
+            this.filter = filter;
+            RpcObject.Builder builder = new RpcObject.Builder();
+            filter.apply(builder);
+            try {
+                this.key = RpcCodec.writeAsString(builder.build());
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        /**
+         * Starts the subscription, and returns whether the connection including its filter is started.
+         * The subscription which has not started is removed.
+         */
+        @Override
+        public boolean start(Listener<EventNotification> listener) {
+            try {
+                return startAsync(listener, HANDSHAKE_TIMEOUT, TimeUnit.NANOSECONDS).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Starts the subscription without waiting, and the handshake of a new connection is limited by the timeout
+         */
+        @Override
+        public CompletableFuture<Boolean> startAsync(Listener<EventNotification> listener, long timeout, TimeUnit unit) {
+            this.listener = listener;
+            this.started = false;
+            return add(this, unit.toNanos(timeout)).whenComplete((started, ex) -> {
+                if (ex != null || !started) {
+                    remove(this);
+                }
+            });
+        }
+
+        @Override
+        public void stop() {
+            if (!remove(this)) {
+                throw new IllegalStateException("Not started");
+            }
+            synchronized (deliveryLock) {
+                listener.onClose();
+            }
+        }
+    }
+}
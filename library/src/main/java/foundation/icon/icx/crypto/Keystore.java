@@ -1,6 +1,7 @@
 package foundation.icon.icx.crypto;
 
 import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.jfr.FlightEvents;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.generators.PKCS5S2ParametersGenerator;
 import org.bouncycastle.crypto.generators.SCrypt;
@@ -174,6 +175,17 @@ public class Keystore {
         validate(keystoreFile);
 
         KeystoreFile.Crypto crypto = keystoreFile.getCrypto();
+        FlightEvents.Event event = FlightEvents.KEYSTORE_DECRYPT.begin();
+        try {
+            return decrypt(password, crypto);
+        } finally {
+            if (event != null) {
+                event.set("kdf", crypto.getKdf()).commit();
+            }
+        }
+    }
+
+    private static Bytes decrypt(String password, KeystoreFile.Crypto crypto) throws KeystoreException {
 
         byte[] mac = Hex.decode(crypto.getMac());
         byte[] iv = Hex.decode(crypto.getCipherparams().getIv());
@@ -16,6 +16,7 @@
 
 package foundation.icon.icx.data;
 
+import foundation.icon.icx.transport.jsonrpc.RpcArray;
 import foundation.icon.icx.transport.jsonrpc.RpcItem;
 import foundation.icon.icx.transport.jsonrpc.RpcObject;
 
@@ -37,4 +38,54 @@ public class BlockNotification {
         RpcItem item = properties.getItem("height");
         return item != null ? item.asInteger() : null;
     }
+
+    /**
+     * Returns the indexes of the transactions which have the events matched with each event filter
+     * of the monitor, or null if the monitor has no event filters
+     *
+     * @return the indexes of the transactions for each event filter
+     */
+    public BigInteger[][] getIndexes() {
+        RpcItem item = properties.getItem("indexes");
+        if (item == null) {
+            return null;
+        }
+        RpcArray array = item.asArray();
+        BigInteger[][] indexes = new BigInteger[array.size()][];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = toIntegers(array.get(i).asArray());
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns the indexes of the matched events in each transaction of {@link #getIndexes()},
+     * or null if the monitor has no event filters
+     *
+     * @return the indexes of the events for each transaction of each event filter
+     */
+    public BigInteger[][][] getEvents() {
+        RpcItem item = properties.getItem("events");
+        if (item == null) {
+            return null;
+        }
+        RpcArray array = item.asArray();
+        BigInteger[][][] events = new BigInteger[array.size()][][];
+        for (int i = 0; i < events.length; i++) {
+            RpcArray transactions = array.get(i).asArray();
+            events[i] = new BigInteger[transactions.size()][];
+            for (int j = 0; j < events[i].length; j++) {
+                events[i][j] = toIntegers(transactions.get(j).asArray());
+            }
+        }
+        return events;
+    }
+
+    static BigInteger[] toIntegers(RpcArray array) {
+        BigInteger[] integers = new BigInteger[array.size()];
+        for (int i = 0; i < integers.length; i++) {
+            integers[i] = array.get(i).asInteger();
+        }
+        return integers;
+    }
 }
@@ -42,4 +42,14 @@ public class EventNotification {
         RpcItem item = properties.getItem("index");
         return item != null ? item.asInteger() : null;
     }
+
+    /**
+     * Returns the indexes of the matched events in the transaction
+     *
+     * @return the indexes of the events, or null if the notification has no indexes
+     */
+    public BigInteger[] getEvents() {
+        RpcItem item = properties.getItem("events");
+        return item != null ? BlockNotification.toIntegers(item.asArray()) : null;
+    }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.jfr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The Java Flight Recorder events of the library.
+ *
+ * <p>The event types are defined at runtime through {@code jdk.jfr.EventFactory}, so the library
+ * still runs on Java 8 where no event is emitted. They are registered when the first event is emitted
+ * during a recording, and while no recording is running, {@link Type#begin()} only reads a volatile flag.
+ *
+ * <pre>
+ * FlightEvents.Event event = FlightEvents.SIGN.begin();
+ * ...
+ * if (event != null) {
+ *     event.commit();
+ * }
+ * </pre>
+ */
+public final class FlightEvents {
+
+    private static final String CATEGORY = "ICON SDK";
+
+    /**
+     * The HTTP call of a JSON-RPC request, from sending the request until the response is converted
+     */
+    public static final Type RPC_CALL = new Type("foundation.icon.icx.RpcCall", "RPC Call", "Transport",
+            field(String.class, "method", "Method", null, null),
+            field(String.class, "endpoint", "Endpoint", null, null),
+            field(int.class, "status", "HTTP Status", null, null),
+            field(long.class, "requestBytes", "Request Bytes", "jdk.jfr.DataAmount", "BYTES"),
+            field(long.class, "responseBytes", "Response Bytes", "jdk.jfr.DataAmount", "BYTES"),
+            field(long.class, "decodeTime", "Decode Time", "jdk.jfr.Timespan", "NANOSECONDS"),
+            field(boolean.class, "successful", "Successful", null, null));
+
+    /**
+     * The signing of a hash by {@code KeyWallet}
+     */
+    public static final Type SIGN = new Type("foundation.icon.icx.Sign", "Sign", "Crypto");
+
+    /**
+     * The construction of a {@code SignedTransaction}, including the serialization and the signing
+     */
+    public static final Type SIGNED_TRANSACTION = new Type("foundation.icon.icx.SignedTransaction",
+            "Signed Transaction", "Crypto",
+            field(String.class, "from", "From", null, null));
+
+    /**
+     * The decryption of a keystore file
+     */
+    public static final Type KEYSTORE_DECRYPT = new Type("foundation.icon.icx.KeystoreDecrypt",
+            "Keystore Decrypt", "Crypto",
+            field(String.class, "kdf", "Key Derivation Function", null, null));
+
+    /**
+     * The dispatch of a message of a monitor to the listener
+     */
+    public static final Type MONITOR_DISPATCH = new Type("foundation.icon.icx.MonitorDispatch",
+            "Monitor Dispatch", "Transport",
+            field(String.class, "path", "Path", null, null),
+            field(long.class, "messageSize", "Message Size", "jdk.jfr.DataAmount", "BYTES"));
+
+    private FlightEvents() {
+    }
+
+    private static Field field(Class<?> type, String name, String label, String unit, String unitValue) {
+        return new Field(type, name, label, unit, unitValue);
+    }
+
+    /**
+     * A type of the events
+     */
+    public static final class Type {
+        private final String name;
+        private final String label;
+        private final String category;
+        private final Field[] fields;
+        private volatile Object factory;
+        private volatile boolean failed;
+
+        private Type(String name, String label, String category, Field... fields) {
+            this.name = name;
+            this.label = label;
+            this.category = category;
+            this.fields = fields;
+        }
+
+        /**
+         * Begins an event if a recording is running
+         *
+         * @return the event, or null if no recording is running
+         */
+        public Event begin() {
+            if (!Jfr.recording) {
+                return null;
+            }
+            Object factory = factory();
+            if (factory == null) {
+                return null;
+            }
+            try {
+                Object event = Jfr.newEvent.invoke(factory);
+                Jfr.begin.invoke(event);
+                return new Event(this, event);
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private Object factory() {
+            Object factory = this.factory;
+            if (factory == null && !failed) {
+                synchronized (this) {
+                    factory = this.factory;
+                    if (factory == null && !failed) {
+                        try {
+                            factory = this.factory = Jfr.register(this);
+                        } catch (Throwable t) {
+                            failed = true;
+                        }
+                    }
+                }
+            }
+            return factory;
+        }
+
+        private int indexOf(String field) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].name.equals(field)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Unknown field: " + field);
+        }
+    }
+
+    /**
+     * An event being recorded
+     */
+    public static final class Event {
+        private final Type type;
+        private final Object event;
+
+        private Event(Type type, Object event) {
+            this.type = type;
+            this.event = event;
+        }
+
+        /**
+         * Sets the value of a field
+         *
+         * @param field the name of the field
+         * @param value the value of the type of the field
+         * @return this event
+         */
+        public Event set(String field, Object value) {
+            int index = type.indexOf(field);
+            try {
+                Jfr.set.invoke(event, index, value);
+            } catch (Throwable ignored) {
+                // The events never fail the operations
+            }
+            return this;
+        }
+
+        /**
+         * Ends the event and writes it to the recordings
+         */
+        public void commit() {
+            try {
+                Jfr.commit.invoke(event);
+            } catch (Throwable ignored) {
+                // The events never fail the operations
+            }
+        }
+    }
+
+    private static final class Field {
+        private final Class<?> type;
+        private final String name;
+        private final String label;
+        private final String unit;
+        private final String unitValue;
+
+        Field(Class<?> type, String name, String label, String unit, String unitValue) {
+            this.type = type;
+            this.name = name;
+            this.label = label;
+            this.unit = unit;
+            this.unitValue = unitValue;
+        }
+    }
+
+    // Accesses jdk.jfr through the reflection, which is missing in Java 8
+    private static final class Jfr {
+        private static final Set<Object> running = Collections.newSetFromMap(new IdentityHashMap<>());
+        private static volatile boolean recording;
+        private static MethodHandle newEvent;
+        private static MethodHandle begin;
+        private static MethodHandle set;
+        private static MethodHandle commit;
+        private static Class<?> annotationElement;
+        private static Class<?> valueDescriptor;
+        private static Class<?> eventFactory;
+
+        static {
+            try {
+                Class<?> recorder = Class.forName("jdk.jfr.FlightRecorder");
+                if ((Boolean) recorder.getMethod("isAvailable").invoke(null)) {
+                    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                    Class<?> event = Class.forName("jdk.jfr.Event");
+                    eventFactory = Class.forName("jdk.jfr.EventFactory");
+                    annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+                    valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+                    newEvent = lookup.unreflect(eventFactory.getMethod("newEvent"));
+                    begin = lookup.unreflect(event.getMethod("begin"));
+                    set = lookup.unreflect(event.getMethod("set", int.class, Object.class));
+                    commit = lookup.unreflect(event.getMethod("commit"));
+
+                    // Follows the recordings without initializing the recorder
+                    Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+                    Object listener = Proxy.newProxyInstance(FlightEvents.class.getClassLoader(),
+                            new Class<?>[]{listenerClass}, (proxy, method, args) -> {
+                                switch (method.getName()) {
+                                    case "recorderInitialized":
+                                        for (Object r : (List<?>) args[0].getClass().getMethod("getRecordings")
+                                                .invoke(args[0])) {
+                                            update(r);
+                                        }
+                                        return null;
+                                    case "recordingStateChanged":
+                                        update(args[0]);
+                                        return null;
+                                    case "equals":
+                                        return proxy == args[0];
+                                    case "hashCode":
+                                        return System.identityHashCode(proxy);
+                                    case "toString":
+                                        return "FlightEvents";
+                                    default:
+                                        return null;
+                                }
+                            });
+                    recorder.getMethod("addListener", listenerClass).invoke(null, listener);
+                }
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                // No event is emitted without the recorder
+            }
+        }
+
+        private static void update(Object recording) throws ReflectiveOperationException {
+            String state = String.valueOf(recording.getClass().getMethod("getState").invoke(recording));
+            synchronized (running) {
+                if ("RUNNING".equals(state)) {
+                    running.add(recording);
+                } else {
+                    running.remove(recording);
+                }
+                Jfr.recording = !running.isEmpty();
+            }
+        }
+
+        private static Object register(Type type) throws ReflectiveOperationException {
+            List<Object> annotations = new ArrayList<>();
+            annotations.add(annotation("jdk.jfr.Name", type.name));
+            annotations.add(annotation("jdk.jfr.Label", type.label));
+            annotations.add(annotation("jdk.jfr.Category", new String[]{CATEGORY, type.category}));
+            List<Object> fields = new ArrayList<>();
+            for (Field field : type.fields) {
+                List<Object> fieldAnnotations = new ArrayList<>();
+                fieldAnnotations.add(annotation("jdk.jfr.Label", field.label));
+                if (field.unit != null) {
+                    fieldAnnotations.add(annotation(field.unit, field.unitValue));
+                }
+                fields.add(valueDescriptor.getConstructor(Class.class, String.class, List.class)
+                        .newInstance(field.type, field.name, fieldAnnotations));
+            }
+            return eventFactory.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+        }
+
+        private static Object annotation(String type, Object value) throws ReflectiveOperationException {
+            return annotationElement.getConstructor(Class.class, Object.class)
+                    .newInstance(Class.forName(type), value);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.reactive;
+
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.data.Block;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the blocks in a range of heights in order.
+ *
+ * <p>The blocks are fetched ahead only as many as the outstanding demand, up to the maximum prefetch,
+ * so a slow subscriber does not make the blocks pile up in memory.
+ */
+class BlockRangePublisher implements Publisher<Block> {
+
+    private final IconService iconService;
+    private final BigInteger from;
+    private final BigInteger to;
+    private final int maxPrefetch;
+
+    BlockRangePublisher(IconService iconService, BigInteger from, BigInteger to, int maxPrefetch) {
+        this.iconService = iconService;
+        this.from = from;
+        this.to = to;
+        this.maxPrefetch = maxPrefetch;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Block> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        RangeSubscription subscription = new RangeSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private class RangeSubscription implements Subscription {
+        private final Subscriber<? super Block> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        // The fetches in flight or done, in the order of the heights; accessed only in drain
+        private final Deque<CompletableFuture<Block>> fetches = new ArrayDeque<>();
+        private BigInteger next = from;
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        RangeSubscription(Subscriber<? super Block> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The demand should be positive, but " + n);
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        // Runs on one thread at a time, and runs again if it is called meanwhile
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!emit()) {
+                    for (CompletableFuture<Block> fetch : fetches) {
+                        fetch.cancel(true);
+                    }
+                    fetches.clear();
+                } else {
+                    prefetch();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        // Delivers the blocks fetched in order, and returns false once the subscription has ended
+        private boolean emit() {
+            for (;;) {
+                if (cancelled) {
+                    return false;
+                }
+                if (invalidRequest != null) {
+                    cancelled = true;
+                    subscriber.onError(invalidRequest);
+                    return false;
+                }
+                CompletableFuture<Block> head = fetches.peek();
+                if (head == null) {
+                    if (next.compareTo(to) > 0) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return false;
+                    }
+                    return true;
+                }
+                if (!head.isDone() || demand.get() == 0) {
+                    return true;
+                }
+                fetches.poll();
+                Block block;
+                try {
+                    block = head.join();
+                } catch (CompletionException e) {
+                    cancelled = true;
+                    subscriber.onError(e.getCause() != null ? e.getCause() : e);
+                    return false;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(block);
+            }
+        }
+
+        private void prefetch() {
+            long limit = Math.min(demand.get(), maxPrefetch);
+            while (fetches.size() < limit && next.compareTo(to) <= 0) {
+                CompletableFuture<Block> fetch = iconService.getBlock(next).executeAsync();
+                fetches.add(fetch);
+                next = next.add(BigInteger.ONE);
+                fetch.whenComplete((block, ex) -> drain());
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.reactive;
+
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.monitor.Monitor;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the notifications of a monitor, which is opened for each subscriber.
+ *
+ * <p>The listener of the monitor waits while the subscriber has no outstanding demand.
+ * With {@link foundation.icon.icx.transport.monitor.OverflowPolicy#BLOCK}, the monitor stops
+ * reading the connection once its buffer is full, so the node is slowed down instead of
+ * the notifications piling up.
+ *
+ * <p>The signals to the subscriber never overlap. A terminal signal which comes while
+ * {@code onNext} is in progress is delivered after it returns.
+ */
+class MonitorPublisher<T> implements Publisher<T> {
+
+    private final Supplier<Monitor<T>> monitorFactory;
+    private final long handshakeTimeout;
+
+    MonitorPublisher(Supplier<Monitor<T>> monitorFactory, long handshakeTimeout, TimeUnit unit) {
+        this.monitorFactory = monitorFactory;
+        this.handshakeTimeout = unit.toNanos(handshakeTimeout);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        MonitorSubscription<T> subscription = new MonitorSubscription<>(subscriber, monitorFactory.get());
+        subscriber.onSubscribe(subscription);
+        subscription.start(handshakeTimeout);
+    }
+
+    private static class MonitorSubscription<T> implements Subscription, Monitor.Listener<T> {
+        private final Subscriber<? super T> subscriber;
+        private final Monitor<T> monitor;
+        private long demand;
+        private boolean done;
+        private boolean emitting;
+        private Runnable pendingTerminal;
+
+        MonitorSubscription(Subscriber<? super T> subscriber, Monitor<T> monitor) {
+            this.subscriber = subscriber;
+            this.monitor = monitor;
+        }
+
+        void start(long timeout) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+            }
+            monitor.startAsync(this, timeout, TimeUnit.NANOSECONDS).whenComplete((started, ex) -> {
+                if (ex != null || !started) {
+                    onError(0);
+                } else if (isDone()) {
+                    // Cancelled while it was starting
+                    stopMonitor();
+                }
+            });
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (terminate()) {
+                    signalTerminal(() -> subscriber.onError(
+                            new IllegalArgumentException("The demand should be positive, but " + n)));
+                }
+                return;
+            }
+            synchronized (this) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            terminate();
+        }
+
+        @Override
+        public void onStart() {
+        }
+
+        // Waits for the demand on the thread of the monitor, which holds back the notifications after it
+        @Override
+        public void onEvent(T msg) {
+            synchronized (this) {
+                try {
+                    while ((demand == 0 || emitting) && !done) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (done) {
+                    return;
+                }
+                if (demand != Long.MAX_VALUE) {
+                    demand--;
+                }
+                emitting = true;
+            }
+            try {
+                subscriber.onNext(msg);
+            } finally {
+                Runnable terminal;
+                synchronized (this) {
+                    emitting = false;
+                    terminal = pendingTerminal;
+                    pendingTerminal = null;
+                    notifyAll();
+                }
+                if (terminal != null) {
+                    terminal.run();
+                }
+            }
+        }
+
+        @Override
+        public void onError(long code) {
+            if (terminate()) {
+                signalTerminal(() -> subscriber.onError(new RpcError(code, "The monitor failed")));
+            }
+        }
+
+        @Override
+        public void onClose() {
+            if (terminate()) {
+                signalTerminal(subscriber::onComplete);
+            }
+        }
+
+        // Stops the monitor once, and returns whether this call has stopped it
+        private boolean terminate() {
+            synchronized (this) {
+                if (done) {
+                    return false;
+                }
+                done = true;
+                notifyAll();
+            }
+            stopMonitor();
+            return true;
+        }
+
+        // Delivers the terminal signal now, or after the onNext in progress returns
+        private void signalTerminal(Runnable signal) {
+            synchronized (this) {
+                if (emitting) {
+                    pendingTerminal = signal;
+                    return;
+                }
+            }
+            signal.run();
+        }
+
+        private synchronized boolean isDone() {
+            return done;
+        }
+
+        private void stopMonitor() {
+            try {
+                monitor.stop();
+            } catch (RuntimeException ignored) {
+                // The monitor is not started or already stopped
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.reactive;
+
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Block;
+import foundation.icon.icx.data.BlockNotification;
+import foundation.icon.icx.data.EventNotification;
+import foundation.icon.icx.transport.monitor.Monitor;
+import org.reactivestreams.Publisher;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The {@code Publishers} class creates the Reactive Streams publishers of the notifications and the blocks,
+ * which honour the demand of the subscribers.
+ *
+ * <p>Each subscriber gets its own monitor or fetches. On Java 9 or later, they can be used as
+ * {@code java.util.concurrent.Flow.Publisher} with {@code org.reactivestreams.FlowAdapters}.
+ */
+public final class Publishers {
+
+    private static final long HANDSHAKE_TIMEOUT = 3;
+
+    private Publishers() {
+    }
+
+    /**
+     * Creates a publisher of the notifications of the monitors from the factory.
+     * The monitor is stopped when the subscription is cancelled, and its error and close
+     * complete the subscription.
+     *
+     * @param monitorFactory the factory making a monitor for each subscriber
+     * @param <T> the type of the notifications
+     * @return the publisher
+     */
+    public static <T> Publisher<T> monitor(Supplier<Monitor<T>> monitorFactory) {
+        return new MonitorPublisher<>(monitorFactory, HANDSHAKE_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a publisher of the block notifications
+     *
+     * @param iconService the service to open the monitors
+     * @param height the start height
+     * @return the publisher
+     * @see IconService#monitorBlocks(BigInteger)
+     */
+    public static Publisher<BlockNotification> blocks(IconService iconService, BigInteger height) {
+        return monitor(() -> iconService.monitorBlocks(height));
+    }
+
+    /**
+     * Creates a publisher of the event notifications
+     *
+     * @param iconService the service to open the monitors
+     * @param height the start height
+     * @param event the event signature
+     * @param addr the address of SCORE
+     * @param indexed the array of arguments to match with indexed parameters of event
+     * @param data the array of arguments to match with non-indexed parameters of event
+     * @return the publisher
+     * @see IconService#monitorEvents(BigInteger, String, Address, String[], String[])
+     */
+    public static Publisher<EventNotification> events(IconService iconService, BigInteger height, String event,
+                                                      Address addr, String[] indexed, String[] data) {
+        return monitor(() -> iconService.monitorEvents(height, event, addr, indexed, data));
+    }
+
+    /**
+     * Creates a publisher of the blocks in the range of the heights, which fetches
+     * up to 16 blocks ahead within the demand
+     *
+     * @param iconService the service to fetch the blocks
+     * @param from the height of the first block
+     * @param to the height of the last block, inclusive
+     * @return the publisher
+     */
+    public static Publisher<Block> blockRange(IconService iconService, BigInteger from, BigInteger to) {
+        return blockRange(iconService, from, to, 16);
+    }
+
+    /**
+     * Creates a publisher of the blocks in the range of the heights
+     *
+     * @param iconService the service to fetch the blocks
+     * @param from the height of the first block
+     * @param to the height of the last block, inclusive
+     * @param maxPrefetch the maximum number of the blocks fetched ahead of the subscriber
+     * @return the publisher
+     */
+    public static Publisher<Block> blockRange(IconService iconService, BigInteger from, BigInteger to,
+                                              int maxPrefetch) {
+        if (maxPrefetch < 1) {
+            throw new IllegalArgumentException("maxPrefetch should be positive");
+        }
+        return new BlockRangePublisher(iconService, from, to, maxPrefetch);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of the connections used by {@link HttpProvider}.
+ * With HTTP/2, it shows how many calls share each connection as the concurrent streams.
+ */
+public final class ConnectionStats {
+
+    private final ConcurrentMap<Connection, Usage> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the usages of the connections which are open or in use
+     *
+     * @return the usages of the connections
+     */
+    public List<Usage> getConnections() {
+        List<Usage> result = new ArrayList<>();
+        connections.forEach((connection, usage) -> {
+            if (usage.getActiveStreams() == 0 && connection.socket().isClosed()) {
+                connections.remove(connection, usage);
+            } else {
+                result.add(usage);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the number of the calls in flight over all the connections
+     *
+     * @return the number of the calls
+     */
+    public int getActiveStreams() {
+        int active = 0;
+        for (Usage usage : connections.values()) {
+            active += usage.getActiveStreams();
+        }
+        return active;
+    }
+
+    EventListener listener(EventListener delegate) {
+        ForwardingEventListener listener = new ForwardingEventListener() {
+            @Override
+            public void connectionAcquired(Call call, Connection connection) {
+                Usage usage = connections.get(connection);
+                if (usage == null) {
+                    // Drops the closed connections before a new one is tracked
+                    getConnections();
+                    usage = connections.computeIfAbsent(connection, Usage::new);
+                }
+                usage.acquire();
+                super.connectionAcquired(call, connection);
+            }
+
+            @Override
+            public void connectionReleased(Call call, Connection connection) {
+                Usage usage = connections.get(connection);
+                if (usage != null) {
+                    usage.release();
+                }
+                super.connectionReleased(call, connection);
+            }
+        };
+        listener.setDelegate(delegate);
+        return listener;
+    }
+
+    /**
+     * The usage of a connection
+     */
+    public static final class Usage {
+        private final String endpoint;
+        private final Protocol protocol;
+        private final AtomicInteger activeStreams = new AtomicInteger();
+        private final AtomicInteger maxActiveStreams = new AtomicInteger();
+        private final AtomicLong totalStreams = new AtomicLong();
+
+        Usage(Connection connection) {
+            this.endpoint = connection.route().address().url().host() + ":" + connection.route().address().url().port();
+            this.protocol = connection.protocol();
+        }
+
+        private void acquire() {
+            int active = activeStreams.incrementAndGet();
+            maxActiveStreams.accumulateAndGet(active, Math::max);
+            totalStreams.incrementAndGet();
+        }
+
+        private void release() {
+            activeStreams.decrementAndGet();
+        }
+
+        /**
+         * Returns the host and the port of the connection
+         *
+         * @return the endpoint
+         */
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public Protocol getProtocol() {
+            return protocol;
+        }
+
+        /**
+         * Returns the number of the calls in flight over the connection
+         *
+         * @return the number of the calls
+         */
+        public int getActiveStreams() {
+            return activeStreams.get();
+        }
+
+        /**
+         * Returns the highest number of the calls in flight at once over the connection
+         *
+         * @return the number of the calls
+         */
+        public int getMaxActiveStreams() {
+            return maxActiveStreams.get();
+        }
+
+        /**
+         * Returns the number of the calls made over the connection
+         *
+         * @return the number of the calls
+         */
+        public long getTotalStreams() {
+            return totalStreams.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Usage{endpoint=" + endpoint + ", protocol=" + protocol + ", activeStreams=" + activeStreams
+                    + ", maxActiveStreams=" + maxActiveStreams + ", totalStreams=" + totalStreams + '}';
+        }
+    }
+}
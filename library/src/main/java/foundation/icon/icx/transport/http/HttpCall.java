@@ -16,19 +16,26 @@
 
 package foundation.icon.icx.transport.http;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import foundation.icon.icx.Callback;
 import foundation.icon.icx.Request;
+import foundation.icon.icx.jfr.FlightEvents;
 import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcCodec;
 import foundation.icon.icx.transport.jsonrpc.RpcConverter;
 import foundation.icon.icx.transport.jsonrpc.RpcError;
-import foundation.icon.icx.transport.jsonrpc.RpcItem;
-import foundation.icon.icx.transport.jsonrpc.RpcItemDeserializer;
+import foundation.icon.icx.transport.metrics.MetricsListener;
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Http call can be executed by this class
@@ -37,22 +44,49 @@ import java.io.IOException;
  */
 public class HttpCall<T> implements Request<T> {
 
-    private final okhttp3.Call httpCall;
-    private final RpcConverter<T> converter;
+    private final okhttp3.Call.Factory callFactory;
+    private final okhttp3.Request httpRequest;
+    private final String method;
+    private final boolean waitTimeout;
+    private final MetricsListener metricsListener;
+    private final ContentConverter<T> converter;
+    private volatile long timeout;
+    private okhttp3.Call httpCall;
+    private boolean canceled;
 
-    HttpCall(okhttp3.Call httpCall, RpcConverter<T> converter) {
-        this.httpCall = httpCall;
+    HttpCall(okhttp3.Call.Factory callFactory, okhttp3.Request httpRequest, String method, boolean waitTimeout,
+             MetricsListener metricsListener, RpcConverter<T> converter) {
+        this(callFactory, httpRequest, method, waitTimeout, metricsListener,
+                (in, metrics) -> convertResult(in, converter, metrics));
+    }
+
+    HttpCall(okhttp3.Call.Factory callFactory, okhttp3.Request httpRequest, String method, boolean waitTimeout,
+             MetricsListener metricsListener, ContentConverter<T> converter) {
+        this.callFactory = callFactory;
+        this.httpRequest = httpRequest;
+        this.method = method;
+        this.waitTimeout = waitTimeout;
+        this.metricsListener = metricsListener;
         this.converter = converter;
     }
 
+    /**
+     * Creates a call whose response is a JSON-RPC batch.
+     * The responses are returned in the order in which the server sent them.
+     */
+    static HttpCall<List<Response>> batch(okhttp3.Call.Factory callFactory, okhttp3.Request httpRequest,
+                                          MetricsListener metricsListener) {
+        return new HttpCall<>(callFactory, httpRequest, "batch", false, metricsListener, HttpCall::convertBatch);
+    }
+
     @Override
     public T execute() throws IOException {
-        return convertResponse(httpCall.execute());
+        return convertResponse(newCall().execute());
     }
 
     @Override
     public void execute(final Callback<T> callback) {
-        httpCall.enqueue(new okhttp3.Callback() {
+        newCall().enqueue(new okhttp3.Callback() {
             @Override
             public void onFailure(okhttp3.Call call, IOException e) {
                 callback.onFailure(e);
@@ -71,30 +105,182 @@ public class HttpCall<T> implements Request<T> {
         });
     }
 
+    @Override
+    public CompletableFuture<T> executeAsync(final Executor executor) {
+        final okhttp3.Call httpCall = newCall();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, exception) -> {
+            if (future.isCancelled()) {
+                httpCall.cancel();
+            }
+        });
+        httpCall.enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                try {
+                    executor.execute(() -> future.completeExceptionally(e));
+                } catch (RuntimeException ex) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onResponse(okhttp3.Call call, final okhttp3.Response response) {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            future.complete(convertResponse(response));
+                        } catch (Exception e) {
+                            future.completeExceptionally(e);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    response.close();
+                    finish(response, false);
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public synchronized void cancel() {
+        canceled = true;
+        if (httpCall != null) {
+            httpCall.cancel();
+        }
+    }
+
+    @Override
+    public Request<T> timeout(long timeout, TimeUnit unit) {
+        // Rounds up the time limits shorter than a millisecond
+        this.timeout = timeout > 0 ? Math.max(1, unit.toMillis(timeout)) : 0;
+        return this;
+    }
+
+    // Makes a new OkHttp call for every execution, with the time limit of the execution
+    private okhttp3.Call newCall() {
+        long timeout = this.timeout;
+        MetricsListener metricsListener = this.metricsListener;
+        FlightEvents.Event flightEvent = FlightEvents.RPC_CALL.begin();
+        okhttp3.Request request = httpRequest;
+        if ((timeout > 0 && waitTimeout) || metricsListener != null || flightEvent != null) {
+            okhttp3.Request.Builder builder = request.newBuilder();
+            if (timeout > 0 && waitTimeout) {
+                // The node stops waiting as well, instead of holding the connection after the call times out
+                builder.header("Icon-Options", "timeout=" + timeout);
+            }
+            if (metricsListener != null || flightEvent != null) {
+                // A new listener per execution, picked up by the event listener factory of the client
+                builder.tag(MetricsEventListener.class,
+                        new MetricsEventListener(metricsListener, flightEvent, request.url(), method));
+            }
+            request = builder.build();
+        }
+        okhttp3.Call call = callFactory.newCall(request);
+        if (timeout > 0) {
+            call.timeout().timeout(timeout, TimeUnit.MILLISECONDS);
+        }
+        synchronized (this) {
+            httpCall = call;
+            if (canceled) {
+                call.cancel();
+            }
+        }
+        return call;
+    }
+
     // Converts the response data from the OkHttp response
     private T convertResponse(okhttp3.Response httpResponse) throws IOException {
-        ResponseBody body = httpResponse.body();
-        if (body != null) {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            mapper.registerModule(createDeserializerModule());
-            String content = body.string();
-            Response response = mapper.readValue(content, Response.class);
-            if (converter == null) {
-                throw new IllegalArgumentException("There is no converter for response:'" + content + "'");
+        MetricsEventListener metrics = httpResponse.request().tag(MetricsEventListener.class);
+        boolean successful = false;
+        try {
+            ResponseBody body = httpResponse.body();
+            if (body != null && (httpResponse.isSuccessful() || isJson(body))) {
+                // Decodes straight from the socket without buffering the whole content
+                T result;
+                try (InputStream in = decode(httpResponse, body.byteStream())) {
+                    result = converter.convert(in, metrics);
+                }
+                successful = true;
+                return result;
+            } else {
+                // An error page of a proxy or the server without a jsonrpc payload
+                httpResponse.close();
+                if (metrics != null) {
+                    metrics.error(httpResponse.code());
+                }
+                throw new RpcError(httpResponse.code(), httpResponse.message());
+            }
+        } finally {
+            if (metrics != null) {
+                metrics.finish(successful);
             }
-            if (response.getError() != null) {
-                throw response.getError();
+        }
+    }
+
+    private static void finish(okhttp3.Response httpResponse, boolean successful) {
+        MetricsEventListener metrics = httpResponse.request().tag(MetricsEventListener.class);
+        if (metrics != null) {
+            metrics.finish(successful);
+        }
+    }
+
+    // The encoding is negotiated explicitly, so OkHttp leaves the gzip encoded content as it is
+    private static InputStream decode(okhttp3.Response httpResponse, InputStream in) throws IOException {
+        if ("gzip".equalsIgnoreCase(httpResponse.header("Content-Encoding"))) {
+            return new GZIPInputStream(in);
+        }
+        return in;
+    }
+
+    private static boolean isJson(ResponseBody body) {
+        MediaType contentType = body.contentType();
+        return contentType != null && "json".equals(contentType.subtype());
+    }
+
+    private static <T> T convertResult(InputStream in, RpcConverter<T> converter, MetricsEventListener metrics)
+            throws IOException {
+        if (converter == null) {
+            throw new IllegalArgumentException("There is no converter for response");
+        }
+        long start = System.nanoTime();
+        Response response = RpcCodec.readResponse(in);
+        if (metrics != null) {
+            metrics.decoded(System.nanoTime() - start);
+        }
+        if (response.getError() != null) {
+            if (metrics != null) {
+                metrics.error(response.getError().getCode());
             }
-            return converter.convertTo(response.getResult());
-        } else {
-            throw new RpcError(httpResponse.code(), httpResponse.message());
+            throw response.getError();
+        }
+        start = System.nanoTime();
+        T result = converter.convertTo(response.getResult());
+        if (metrics != null) {
+            metrics.converted(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private static List<Response> convertBatch(InputStream in, MetricsEventListener metrics) throws IOException {
+        long start = System.nanoTime();
+        Response[] responses = RpcCodec.readBatchResponse(in);
+        if (metrics != null) {
+            metrics.decoded(System.nanoTime() - start);
         }
+        return new ArrayList<>(Arrays.asList(responses));
     }
 
-    private SimpleModule createDeserializerModule() {
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(RpcItem.class, new RpcItemDeserializer());
-        return module;
+    /**
+     * Converts the content stream of the response body into the result
+     */
+    interface ContentConverter<T> {
+        /**
+         * @param in the content stream
+         * @param metrics the metrics of the call, or null if they are not collected
+         */
+        T convert(InputStream in, MetricsEventListener metrics) throws IOException;
     }
 }
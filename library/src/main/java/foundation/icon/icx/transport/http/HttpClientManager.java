@@ -0,0 +1,275 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.IconService;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code HttpClientManager} class shares one transport among the {@link HttpProvider}s of
+ * several endpoints and channels, instead of a connection pool and dispatcher threads for each provider.
+ *
+ * <p>All the providers share one connection pool, and each {@link Priority} has one lane shared by
+ * all the providers. The {@link Priority#NORMAL} and {@link Priority#LOW} lanes share one bounded pool of
+ * threads running the calls, while the {@link Priority#HIGH} lane has its own threads, so the transactions
+ * do not wait behind the queued reads. The providers are kept per URL, and they can be registered
+ * per network id to route the services of several networks.
+ *
+ * <p>The connection pool limits only the idle connections. The connections in use are not limited
+ * by the pool, but over HTTP/1.1 they are bounded by the concurrent calls allowed in the lanes.
+ *
+ * <pre>
+ * HttpClientManager manager = new HttpClientManager.Builder().maxThreads(32).build();
+ * manager.register(BigInteger.ONE, "https://ctz.solidwallet.io/api/v3");
+ * IconService mainnet = manager.getIconService(BigInteger.ONE);
+ * </pre>
+ */
+public class HttpClientManager implements Closeable {
+
+    private final OkHttpClient httpClient;
+    private final ConnectionStats connectionStats = new ConnectionStats();
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor highExecutor;
+    private final Map<Priority, OkHttpClient> lanes = new EnumMap<>(Priority.class);
+    private final ConcurrentMap<String, HttpProvider> providers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<BigInteger, String> networks = new ConcurrentHashMap<>();
+
+    private HttpClientManager(Builder builder) {
+        executor = newExecutor(builder.maxThreads, "icx-http-");
+        highExecutor = newExecutor(builder.highPriorityThreads, "icx-http-high-");
+        OkHttpClient base = builder.httpClient != null ? builder.httpClient : new OkHttpClient();
+        base = base.newBuilder()
+                .connectionPool(new ConnectionPool(builder.maxIdleConnections, builder.keepAlive, TimeUnit.NANOSECONDS))
+                .build();
+        httpClient = HttpProvider.wrap(base, connectionStats);
+        lanes.put(Priority.HIGH, newLane(64, highExecutor));
+        lanes.put(Priority.NORMAL, newLane(builder.maxRequests, executor));
+        lanes.put(Priority.LOW, newLane(16, executor));
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads, String name) {
+        AtomicInteger threadId = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, name + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // The lanes share the connections, but queue the calls separately
+    private OkHttpClient newLane(int maxRequests, ThreadPoolExecutor executor) {
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        return httpClient.newBuilder()
+                .dispatcher(dispatcher)
+                .build();
+    }
+
+    /**
+     * Returns the provider of the endpoint, which is created once per URL
+     *
+     * @param url an endpoint url, ex) {@code http://localhost:9000/api/v3}
+     * @return the provider sharing the transport of this manager
+     */
+    public HttpProvider getProvider(String url) {
+        return providers.computeIfAbsent(url,
+                u -> new HttpProvider(httpClient, connectionStats, lanes, true, u, 3));
+    }
+
+    /**
+     * Registers the endpoint of a network
+     *
+     * @param nid the network id
+     * @param url an endpoint url of the network, ex) {@code https://ctz.solidwallet.io/api/v3}
+     */
+    public void register(BigInteger nid, String url) {
+        getProvider(url);
+        networks.put(nid, url);
+    }
+
+    /**
+     * Returns the provider of the registered network
+     *
+     * @param nid the network id
+     * @return the provider sharing the transport of this manager
+     * @throws IllegalArgumentException if the network is not registered
+     */
+    public HttpProvider getProvider(BigInteger nid) {
+        String url = networks.get(nid);
+        if (url == null) {
+            throw new IllegalArgumentException("Unknown network: " + nid);
+        }
+        return getProvider(url);
+    }
+
+    /**
+     * Returns a service of the registered network
+     *
+     * @param nid the network id
+     * @return the service using the shared transport
+     * @throws IllegalArgumentException if the network is not registered
+     */
+    public IconService getIconService(BigInteger nid) {
+        return new IconService(getProvider(nid));
+    }
+
+    /**
+     * Returns the dispatcher of the lane shared by all the providers, to tune its limits
+     *
+     * @param priority the priority of the lane
+     * @return the dispatcher
+     */
+    public Dispatcher getDispatcher(Priority priority) {
+        return lanes.get(priority).dispatcher();
+    }
+
+    /**
+     * Returns the statistics of the connections of all the providers
+     *
+     * @return the statistics
+     */
+    public ConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    /**
+     * Returns the number of the threads running the calls now
+     *
+     * @return the number of the threads
+     */
+    public int getThreadCount() {
+        return executor.getPoolSize() + highExecutor.getPoolSize();
+    }
+
+    /**
+     * Stops the threads and closes the idle connections.
+     * The providers of this manager should not be used after it is closed.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        highExecutor.shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    /**
+     * Builder for HttpClientManager
+     */
+    public static class Builder {
+        private OkHttpClient httpClient;
+        private int maxThreads = 64;
+        private int highPriorityThreads = 8;
+        private int maxRequests = 256;
+        private int maxIdleConnections = 32;
+        private long keepAlive = TimeUnit.MINUTES.toNanos(5);
+
+        /**
+         * Sets the client whose settings like the timeouts and the interceptors are used.
+         * Its connection pool and dispatcher are replaced by the shared ones.
+         *
+         * @param httpClient the http client
+         * @return this builder
+         */
+        public Builder httpClient(OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of the threads running the asynchronous calls of the {@link Priority#NORMAL}
+         * and {@link Priority#LOW} lanes of all the providers
+         *
+         * @param maxThreads the number of the threads
+         * @return this builder
+         */
+        public Builder maxThreads(int maxThreads) {
+            if (maxThreads < 1) {
+                throw new IllegalArgumentException("maxThreads should be positive");
+            }
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of the threads reserved for the asynchronous calls of the {@link Priority#HIGH} lane
+         *
+         * @param threads the number of the threads
+         * @return this builder
+         */
+        public Builder highPriorityThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads should be positive");
+            }
+            this.highPriorityThreads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of the concurrent asynchronous calls in the {@link Priority#NORMAL} lane,
+         * which bounds the number of the HTTP/1.1 connections in use
+         *
+         * @param maxRequests the number of the calls
+         * @return this builder
+         */
+        public Builder maxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests should be positive");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Sets the number of the idle connections kept in the shared pool, and how long they are kept.
+         * It does not limit the connections in use.
+         *
+         * @param maxIdleConnections the number of the connections
+         * @param keepAlive the duration to keep an idle connection
+         * @param unit the time unit of the duration
+         * @return this builder
+         */
+        public Builder connectionPool(int maxIdleConnections, long keepAlive, TimeUnit unit) {
+            if (maxIdleConnections < 0 || keepAlive <= 0) {
+                throw new IllegalArgumentException("Invalid connection pool");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAlive = unit.toNanos(keepAlive);
+            return this;
+        }
+
+        public HttpClientManager build() {
+            return new HttpClientManager(this);
+        }
+    }
+}
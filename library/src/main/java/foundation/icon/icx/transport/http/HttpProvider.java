@@ -16,42 +16,92 @@
 
 package foundation.icon.icx.transport.http;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import foundation.icon.icx.Provider;
 import foundation.icon.icx.Request;
+import foundation.icon.icx.jfr.FlightEvents;
+import foundation.icon.icx.transport.jsonrpc.RpcCodec;
 import foundation.icon.icx.transport.jsonrpc.RpcConverter;
 import foundation.icon.icx.transport.jsonrpc.RpcError;
 import foundation.icon.icx.transport.jsonrpc.RpcItem;
-import foundation.icon.icx.transport.jsonrpc.RpcItemDeserializer;
-import foundation.icon.icx.transport.jsonrpc.RpcItemSerializer;
+import foundation.icon.icx.transport.metrics.MetricsListener;
 import foundation.icon.icx.transport.monitor.Monitor;
 import foundation.icon.icx.transport.monitor.MonitorSpec;
+import foundation.icon.icx.transport.monitor.OverflowPolicy;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okio.Buffer;
 import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The {@code HttpProvider} class transports JSON-RPC payloads through HTTP.
+ *
+ * <p>The requests are sent in the lanes of their {@link Priority}, each of which has its own dispatcher.
+ * The transactions and the waits for their results always go through the {@link Priority#HIGH} lane,
+ * and the other requests go through the {@link Priority#NORMAL} lane which uses the settings of the given http client.
+ * Use {@link #withPriority(Priority)} to send the bulk reads through the {@link Priority#LOW} lane.
+ *
+ * <p>Each {@code HttpProvider} made by the constructors creates its {@link Priority#HIGH} and
+ * {@link Priority#LOW} lanes on their first use. All the lanes share the connection pool of the given client,
+ * but not its dispatcher, so the transactions and the waits are not limited or queued by the dispatcher
+ * of the given client, and the provider never changes the dispatcher of the given client.
+ * The dispatcher of the {@link Priority#NORMAL} lane starts with the limits of the given one and runs
+ * the calls on its executor. Use {@link HttpClientManager} to share the lanes among the providers of
+ * several endpoints or channels.
  */
 public class HttpProvider implements Provider {
 
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static ScheduledExecutorService timer;
+
     private final OkHttpClient httpClient;
+    private final ConnectionStats connectionStats;
+    private final Map<Priority, OkHttpClient> lanes;
+    private final boolean sharedLanes;
+    private List<Protocol> protocols;
+    private int maxConcurrentStreams;
+    private final Map<Priority, ScheduledFuture<?>> keepAlives = new EnumMap<>(Priority.class);
     private String serverUri;
     private String channel;
     private final int version;
     private HashMap<String, String> urlMap;
+    private volatile MetricsListener metricsListener;
+    private volatile int compressionThreshold = -1;
+    private volatile OkHttpClient monitorClient;
+    private volatile int dispatchCapacity = 1024;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private volatile Executor dispatchExecutor;
 
     /**
      * Initializes a new {@code HttpProvider} with the custom http client object and the given endpoint url.
@@ -83,7 +133,7 @@ public class HttpProvider implements Provider {
      * @param url an endpoint url, ex) {@code http://localhost:9000/api/v3}
      */
     public HttpProvider(String url) {
-        this(new OkHttpClient.Builder().build(), url);
+        this(createDefaultClient(), url);
     }
 
     /**
@@ -96,11 +146,50 @@ public class HttpProvider implements Provider {
      * @since 0.9.12
      */
     public HttpProvider(String uri, int version) {
-        this(new OkHttpClient.Builder().build(), uri, version);
+        this(createDefaultClient(), uri, version);
+    }
+
+    // The dispatcher of OkHttp runs only 5 async calls per host by default, which serializes the calls
+    // to a node silently. Use ConcurrencyLimitingProvider to bound the load on the node instead.
+    static OkHttpClient createDefaultClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(256);
+        dispatcher.setMaxRequestsPerHost(256);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .build();
     }
 
     private HttpProvider(OkHttpClient httpClient, boolean allowPath, String uri, int version) {
+        this(httpClient, new ConnectionStats(), allowPath, uri, version);
+    }
+
+    private HttpProvider(OkHttpClient httpClient, ConnectionStats connectionStats, boolean allowPath,
+                         String uri, int version) {
+        // Shares the connection pool and the executor of the dispatcher of the given client
+        this(wrap(httpClient, connectionStats), connectionStats, null, allowPath, uri, version);
+    }
+
+    /**
+     * Creates a provider sending the requests through the given lanes
+     *
+     * @param httpClient the client wrapped by {@link #wrap(OkHttpClient, ConnectionStats)} for the monitors
+     * @param connectionStats the statistics collected by the wrapped client
+     * @param lanes the lanes, or null to create the lanes from the client on their first use
+     */
+    HttpProvider(OkHttpClient httpClient, ConnectionStats connectionStats, Map<Priority, OkHttpClient> lanes,
+                 boolean allowPath, String uri, int version) {
         this.httpClient = httpClient;
+        this.monitorClient = httpClient;
+        this.connectionStats = connectionStats;
+        this.sharedLanes = lanes != null;
+        if (lanes == null) {
+            lanes = new EnumMap<>(Priority.class);
+            lanes.put(Priority.NORMAL, httpClient.newBuilder()
+                    .dispatcher(copyOf(httpClient.dispatcher()))
+                    .build());
+        }
+        this.lanes = lanes;
         if (version != 3) {
             throw new IllegalArgumentException("Unsupported version");
         }
@@ -109,40 +198,407 @@ public class HttpProvider implements Provider {
         generateUrlMap();
     }
 
+    // Chains the listeners of the library before the listener of the client
+    static OkHttpClient wrap(OkHttpClient httpClient, ConnectionStats connectionStats) {
+        EventListener.Factory original = httpClient.eventListenerFactory();
+        return httpClient.newBuilder().eventListenerFactory(call -> {
+            EventListener listener = connectionStats.listener(original.create(call));
+            MetricsEventListener metrics = call.request().tag(MetricsEventListener.class);
+            if (metrics == null) {
+                return listener;
+            }
+            metrics.setDelegate(listener);
+            return metrics;
+        }).build();
+    }
+
+    // The lanes have their own dispatchers, so that changing their limits does not affect the others
+    // sharing the given client
+    private static Dispatcher copyOf(Dispatcher dispatcher) {
+        Dispatcher copy = new Dispatcher(dispatcher.executorService());
+        copy.setMaxRequests(dispatcher.getMaxRequests());
+        copy.setMaxRequestsPerHost(dispatcher.getMaxRequestsPerHost());
+        return copy;
+    }
+
+    // Returns the lane, creating it on its first use.
+    // A lane shares the settings and the connection pool of the client, but not the dispatcher.
+    private OkHttpClient lane(Priority priority) {
+        synchronized (lanes) {
+            OkHttpClient lane = lanes.get(priority);
+            if (lane == null) {
+                int maxRequests = priority == Priority.HIGH ? 64 : 16;
+                Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequests(maxRequests);
+                dispatcher.setMaxRequestsPerHost(maxRequests);
+                lane = withProtocols(httpClient.newBuilder()
+                        .dispatcher(dispatcher)
+                        .build());
+                lanes.put(priority, lane);
+            }
+            return lane;
+        }
+    }
+
+    /**
+     * Switches the lanes to HTTP/2, so that the concurrent calls of a lane are multiplexed
+     * over one connection to the endpoint instead of opening a connection for each.
+     * The {@code https} endpoints negotiate it with ALPN and fall back to HTTP/1.1,
+     * and the {@code http} endpoints use h2c with prior knowledge, so they should accept HTTP/2 without upgrade.
+     * It applies to the requests created after it is called, and the monitors keep using HTTP/1.1.
+     *
+     * <p>The lanes keep their dispatchers and the connection pool, and only their protocols are changed.
+     * The idle HTTP/1.1 connections are not reused by the HTTP/2 calls, and they are evicted by the pool
+     * after the keep-alive duration.
+     * The lanes of the providers of {@link HttpClientManager} are shared, so this method cannot be used
+     * for them. Set the protocols on the client given to {@link HttpClientManager.Builder#httpClient(OkHttpClient)}.
+     *
+     * @param maxConcurrentStreams the maximum number of the concurrent streams per lane. The limit on the requests
+     *        per host of the dispatcher of each lane is lowered to it, while the dispatcher of the given client
+     *        is left as it is. It limits only the asynchronous calls, which are queued by the dispatcher,
+     *        while the synchronous calls by {@code execute()} are not limited by it.
+     *        The endpoint may limit the streams of a connection further, then another connection is opened.
+     * @throws IllegalStateException if the provider is made by {@link HttpClientManager}
+     */
+    public void enableHttp2(int maxConcurrentStreams) {
+        if (maxConcurrentStreams < 1) {
+            throw new IllegalArgumentException("maxConcurrentStreams should be positive");
+        }
+        if (sharedLanes) {
+            throw new IllegalStateException("The lanes are shared by HttpClientManager");
+        }
+        synchronized (lanes) {
+            this.protocols = serverUri.startsWith("https:")
+                    ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                    : Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE);
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            for (Map.Entry<Priority, OkHttpClient> entry : lanes.entrySet()) {
+                entry.setValue(withProtocols(entry.getValue()));
+            }
+        }
+    }
+
+    // Called with the lock of the lanes held. The dispatcher is owned by the lane.
+    private OkHttpClient withProtocols(OkHttpClient lane) {
+        if (protocols == null) {
+            return lane;
+        }
+        Dispatcher dispatcher = lane.dispatcher();
+        dispatcher.setMaxRequestsPerHost(Math.min(dispatcher.getMaxRequestsPerHost(), maxConcurrentStreams));
+        return lane.newBuilder()
+                .protocols(protocols)
+                .build();
+    }
+
+    /**
+     * Warms up the lane before the requests, instead of resolving the endpoint and connecting to it
+     * on the first requests. It resolves the host of the endpoint and sends the given number of
+     * {@code icx_getTotalSupply} probes at once, whose connections stay in the connection pool.
+     * Call it after the construction, or after {@link #enableHttp2(int)} whose connections are not
+     * the HTTP/1.1 ones.
+     *
+     * <p>Over HTTP/1.1, each probe opens a connection, and the connection pool of the lane keeps
+     * 5 idle connections by default. Over HTTP/2, one connection is shared by all the probes.
+     *
+     * @param priority the priority of the lane
+     * @param connections the number of the connections to open
+     * @return the future completed when all the probes are answered successfully, or completed exceptionally
+     *         with the failure of a probe or with the {@link RpcError} of a response other than 2xx
+     */
+    public CompletableFuture<Void> warmUp(Priority priority, int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections should be positive");
+        }
+        OkHttpClient lane = lane(priority);
+        String url = getUrl("icx_getTotalSupply");
+        CompletableFuture<Void> resolved = CompletableFuture.runAsync(() -> {
+            try {
+                List<InetAddress> addresses = lane.dns().lookup(HttpUrl.get(url).host());
+                if (addresses.isEmpty()) {
+                    throw new IOException("No address of " + url);
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, lane.dispatcher().executorService());
+        return resolved.thenCompose(v -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            AtomicInteger remaining = new AtomicInteger(connections);
+            for (int i = 0; i < connections; i++) {
+                okhttp3.Request probe = createHttpRequest(url,
+                        new foundation.icon.icx.transport.jsonrpc.Request(i, "icx_getTotalSupply", null));
+                lane.newCall(probe).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        done.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        // Releases the connection to the pool before the caller goes on
+                        response.close();
+                        // A failing node answers as well, but it is not warmed up
+                        if (!response.isSuccessful()) {
+                            done.completeExceptionally(new RpcError(response.code(), response.message()));
+                        } else if (remaining.decrementAndGet() == 0) {
+                            done.complete(null);
+                        }
+                    }
+                });
+            }
+            return done;
+        });
+    }
+
+    /**
+     * Keeps the connections of the lane alive by warming it up periodically,
+     * so that the pool does not evict them while there are no requests.
+     * The interval should be shorter than the keep-alive duration of the connection pool and the endpoint.
+     *
+     * @param priority the priority of the lane
+     * @param connections the number of the connections to keep
+     * @param interval the interval of the pings, or 0 to stop them
+     * @param unit the time unit of the interval
+     */
+    public void keepAlive(Priority priority, int connections, long interval, TimeUnit unit) {
+        synchronized (keepAlives) {
+            ScheduledFuture<?> previous = keepAlives.remove(priority);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            if (interval > 0) {
+                keepAlives.put(priority, timer().scheduleWithFixedDelay(
+                        () -> warmUp(priority, connections), interval, interval, unit));
+            }
+        }
+    }
+
+    // Runs the keep-alives and the timeouts of the monitor handshakes
+    private static synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "icx-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the statistics of the connections of the lanes and the monitors
+     *
+     * @return the statistics
+     */
+    public ConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    /**
+     * Returns the dispatcher of the lane to tune its limits of the concurrent requests
+     *
+     * @param priority the priority of the lane
+     * @return the dispatcher
+     */
+    public Dispatcher getDispatcher(Priority priority) {
+        return lane(priority).dispatcher();
+    }
+
+    /**
+     * Returns a provider sending the requests through the lane of the given priority.
+     * The transactions and the waits for their results still go through the {@link Priority#HIGH} lane.
+     *
+     * <pre>
+     * IconService backfill = new IconService(httpProvider.withPriority(Priority.LOW));
+     * </pre>
+     *
+     * @param priority the priority of the requests
+     * @return the provider sharing the lanes of this provider
+     */
+    public Provider withPriority(Priority priority) {
+        return new Provider() {
+            @Override
+            public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request,
+                                          RpcConverter<T> converter) {
+                return HttpProvider.this.request(request, converter, priority);
+            }
+
+            @Override
+            public Request<List<foundation.icon.icx.transport.jsonrpc.Response>> requestBatch(
+                    List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+                return HttpProvider.this.requestBatch(requests, priority);
+            }
+
+            @Override
+            public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+                return HttpProvider.this.monitor(spec, converter);
+            }
+        };
+    }
+
     /**
      * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
      */
     @Override
     public <T> Request<T> request(final foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        return request(request, converter, Priority.NORMAL);
+    }
+
+    private <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter,
+                                   Priority priority) {
+        okhttp3.Request httpRequest = createHttpRequest(getUrl(request.getMethod()), request);
+
+        return new HttpCall<>(lane(request.getMethod(), priority), httpRequest, request.getMethod(),
+                isWaitMethod(request.getMethod()), metricsListener, converter);
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<foundation.icon.icx.transport.jsonrpc.Response>> requestBatch(
+            final List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        return requestBatch(requests, Priority.NORMAL);
+    }
+
+    private Request<List<foundation.icon.icx.transport.jsonrpc.Response>> requestBatch(
+            List<foundation.icon.icx.transport.jsonrpc.Request> requests, Priority priority) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("Empty batch");
+        }
+        String url = getUrl(requests.get(0).getMethod());
+        OkHttpClient lane = lane(priority);
+        for (foundation.icon.icx.transport.jsonrpc.Request request : requests) {
+            if (!url.equals(getUrl(request.getMethod()))) {
+                throw new IllegalArgumentException("All the requests in a batch should have the same endpoint");
+            }
+            if (isHighPriorityMethod(request.getMethod())) {
+                lane = lane(Priority.HIGH);
+            }
+        }
+
+        okhttp3.Request httpRequest = createHttpRequest(url, requests);
+
+        return HttpCall.batch(lane, httpRequest, metricsListener);
+    }
+
+    /**
+     * Sets the listener of the metrics of the calls, like {@link foundation.icon.icx.transport.metrics.HistogramMetrics}.
+     * It applies to the requests created after it is set.
+     *
+     * @param metricsListener the listener, or null to stop collecting the metrics
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Enables the gzip encoding of the request bodies, which the endpoint should accept.
+     * The small bodies are sent as they are, because the compression would not pay off.
+     * It applies to the requests created after it is set.
+     *
+     * @param threshold the minimum size of the bodies to compress in bytes, or -1 to disable the compression
+     */
+    public void setRequestCompression(int threshold) {
+        if (threshold < -1) {
+            throw new IllegalArgumentException("threshold should be -1 or not negative");
+        }
+        this.compressionThreshold = threshold;
+    }
+
+    /**
+     * Sets the interval of the pings on the connections of the monitors.
+     * A connection fails if the pong to a ping does not arrive until the next ping,
+     * which detects the half-open connections that would never deliver the notifications.
+     * It applies to the monitors started after it is set.
+     *
+     * @param interval the interval of the pings, or 0 to disable the pings
+     * @param unit the time unit of the interval
+     */
+    public void setMonitorPingInterval(long interval, TimeUnit unit) {
+        this.monitorClient = httpClient.newBuilder().pingInterval(interval, unit).build();
+    }
+
+    /**
+     * Sets how the notifications of the monitors are delivered to their listeners.
+     * The notifications are buffered by the reader of the connection, and decoded and delivered
+     * in order on the executor, so that a slow listener does not stall the connection.
+     * The listeners implementing {@link Monitor.BatchListener} get all the buffered notifications at once.
+     * It applies to the monitors started after it is set.
+     *
+     * @param capacity the number of the notifications which each monitor buffers
+     * @param policy the policy for the notifications which arrive while the buffer is full
+     * @param executor the executor running the listeners, or null to use the shared threads of the library
+     */
+    public void setMonitorDispatch(int capacity, OverflowPolicy policy, Executor executor) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity should be positive");
+        }
+        this.dispatchCapacity = capacity;
+        this.overflowPolicy = policy;
+        this.dispatchExecutor = executor;
+    }
+
+    // Makes the http request, asking for a gzip encoded response which HttpCall decodes while reading
+    private okhttp3.Request createHttpRequest(String url, Object payload) {
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder()
+                .url(url)
+                .header("Accept-Encoding", "gzip");
+        int threshold = compressionThreshold;
+        if (threshold < 0) {
+            return builder.post(createRequestBody(payload)).build();
+        }
+        Buffer content = new Buffer();
+        try {
+            RpcCodec.write(content.outputStream(), payload);
+            if (content.size() < threshold) {
+                return builder.post(RequestBody.create(JSON, content.readByteString())).build();
+            }
+            Buffer compressed = new Buffer();
+            try (BufferedSink sink = Okio.buffer(new GzipSink(compressed))) {
+                sink.writeAll(content);
+            }
+            return builder.header("Content-Encoding", "gzip")
+                    .post(RequestBody.create(JSON, compressed.readByteString()))
+                    .build();
+        } catch (IOException e) {
+            // Writing to the memory fails only when the payload cannot be serialized
+            throw new IllegalArgumentException(e);
+        }
+    }
 
-        // Makes the request body
-        RequestBody body = new RequestBody() {
+    // Makes the request body
+    private RequestBody createRequestBody(final Object payload) {
+        return new RequestBody() {
             @Override
             public MediaType contentType() {
-                return MediaType.parse("application/json");
+                return JSON;
             }
 
             @Override
             public void writeTo(BufferedSink sink) throws IOException {
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-                SimpleModule module = new SimpleModule();
-                module.addSerializer(RpcItem.class, new RpcItemSerializer());
-                mapper.registerModule(module);
-                mapper.writeValue(sink.outputStream(), request);
+                RpcCodec.write(sink.outputStream(), payload);
             }
         };
+    }
 
-        String method = request.getMethod();
-        String prefix = method.substring(0, method.indexOf("_"));
-        String url = urlMap.get(prefix);
+    private OkHttpClient lane(String method, Priority priority) {
+        return lane(isHighPriorityMethod(method) ? Priority.HIGH : priority);
+    }
 
-        okhttp3.Request httpRequest = new okhttp3.Request.Builder()
-                .url(url)
-                .post(body)
-                .build();
+    // The payments should not queue behind the reads
+    private static boolean isHighPriorityMethod(String method) {
+        return "icx_sendTransaction".equals(method) || isWaitMethod(method);
+    }
 
-        return new HttpCall<>(httpClient.newCall(httpRequest), converter);
+    // The methods which wait on the node for the result as long as the timeout in the header
+    private static boolean isWaitMethod(String method) {
+        return "icx_waitTransactionResult".equals(method) || "icx_sendTransactionAndWait".equals(method);
+    }
+
+    String getUrl(String method) {
+        String prefix = method.substring(0, method.indexOf("_"));
+        return urlMap.get(prefix);
     }
 
     private void generateUrlMap() {
@@ -201,22 +657,23 @@ public class HttpProvider implements Provider {
         okhttp3.WebSocket ws;
         final Object condVar = new Object();
         RpcConverter<T> rpcConverter;
-        ObjectMapper mapper;
+        MonitorDispatcher<T> dispatcher;
 
         HttpMonitor(MonitorSpec spec, RpcConverter<T> converter) {
             this.spec = spec;
             this.rpcConverter = converter;
-
-            mapper = new ObjectMapper();
-            SimpleModule module = new SimpleModule();
-            module.addDeserializer(RpcItem.class, new RpcItemDeserializer());
-            mapper.registerModule(module);
         }
 
         private class WebSocketListenerImpl extends WebSocketListener {
             private final String request;
-            WebSocketListenerImpl(String request) {
+            private final MonitorDispatcher<T> dispatcher;
+            private final CompletableFuture<Boolean> handshake;
+            private boolean expired;
+
+            WebSocketListenerImpl(String request, MonitorDispatcher<T> dispatcher, CompletableFuture<Boolean> handshake) {
                 this.request = request;
+                this.dispatcher = dispatcher;
+                this.handshake = handshake;
             }
 
             @Override
@@ -231,13 +688,20 @@ public class HttpProvider implements Provider {
             @Override
             public void onMessage(okhttp3.WebSocket webSocket, String message) {
                 super.onMessage(webSocket, message);
+                boolean started;
                 synchronized (condVar) {
                     switch(state) {
                         case WS_CONNECT:
+                            // The handshake which timed out is ignored
+                            if (expired) {
+                                return;
+                            }
+                            started = false;
                             try {
-                                RpcError error = mapper.readValue(message, RpcError.class);
+                                RpcError error = RpcCodec.readError(message);
                                 if (error.getCode() == 0) {
                                     state = WsState.WS_START;
+                                    started = true;
                                     listener.onStart();
                                 } else {
                                     listener.onError(error.getCode());
@@ -246,79 +710,128 @@ public class HttpProvider implements Provider {
                             catch (IOException ex) {
                                 listener.onError(100);
                             }
-                            condVar.notify();
                             break;
                         case WS_START:
-                            try {
-                                RpcItem rpcItem = mapper.readValue(message, RpcItem.class);
-                                T obj = rpcConverter.convertTo(rpcItem.asObject());
-                                listener.onEvent(obj);
-                            }
-                            catch (IOException ex) {
-                                listener.onError(100);
-                            }
+                            started = true;
                             break;
                         default:
-                            break;
+                            return;
+                    }
+                }
+                if (!handshake.isDone()) {
+                    handshake.complete(started);
+                    return;
+                }
+                // Buffers the notification without the lock, because it may wait for the listener
+                try {
+                    if (!dispatcher.offer(message)) {
+                        dispatcher.finish(() -> listener.onError(OverflowPolicy.ERROR_CODE));
+                        webSocket.cancel();
                     }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
                 }
             }
 
             @Override
             public void onFailure(WebSocket webSocket, Throwable t, Response response) {
-                listener.onError(0);
+                handshake.complete(false);
+                dispatcher.finish(() -> listener.onError(0));
+            }
+
+            // Completes the close started by the node, which would leave the connection half-closed
+            @Override
+            public void onClosing(okhttp3.WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
             }
 
             @Override
             public void onClosed(okhttp3.WebSocket webSocket, int code, String reason) {
-                listener.onClose();
+                handshake.complete(false);
+                dispatcher.finish(listener::onClose);
+            }
+
+            // Gives up the handshake unless it has been done
+            void expire(okhttp3.WebSocket webSocket) {
+                synchronized (condVar) {
+                    if (handshake.isDone() || state == WsState.WS_START) {
+                        return;
+                    }
+                    expired = true;
+                }
+                handshake.complete(false);
+                webSocket.cancel();
             }
         }
 
-        private okhttp3.WebSocket newWebSocket(String request) {
+        private T decode(String message) throws IOException {
+            FlightEvents.Event event = FlightEvents.MONITOR_DISPATCH.begin();
+            try {
+                RpcItem rpcItem = RpcCodec.readItem(message);
+                return rpcConverter.convertTo(rpcItem.asObject());
+            } finally {
+                if (event != null) {
+                    event.set("path", spec.getPath())
+                            .set("messageSize", (long) message.length())
+                            .commit();
+                }
+            }
+        }
+
+        private okhttp3.WebSocket newWebSocket(WebSocketListenerImpl webSocketListener) {
             String url = urlMap.get("icx");
             okhttp3.Request httpRequest = new okhttp3.Request.Builder()
                     .url(url + "/" + spec.getPath())
                     .build();
-            return httpClient.newWebSocket(httpRequest, new WebSocketListenerImpl(request));
+            return monitorClient.newWebSocket(httpRequest, webSocketListener);
         }
 
         @Override
         public boolean start(Listener<T> listener) {
-            synchronized (condVar) {
-                switch(state) {
-                    case WS_INIT:
-                    case WS_STOP:
-                        state = WsState.WS_REQUEST;
-                        break;
-                    default:
-                        throw new IllegalStateException();
-                }
+            try {
+                return startAsync(listener, 3, TimeUnit.SECONDS).get();
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new IllegalStateException();
             }
-            this.listener = listener;
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
-            SimpleModule module = new SimpleModule();
-            module.addSerializer(RpcItem.class, new RpcItemSerializer());
-            mapper.registerModule(module);
+        }
 
+        /**
+         * Starts the monitor without waiting for the handshake. If the handshake times out,
+         * the connection is cancelled and the listener gets {@link Listener#onError(long)}.
+         */
+        @Override
+        public CompletableFuture<Boolean> startAsync(Listener<T> listener, long timeout, TimeUnit unit) {
             String request;
             try {
-                request = mapper.writeValueAsString(spec.getParams());
+                request = RpcCodec.writeAsString(spec.getParams());
             }
-            catch (JsonProcessingException ex) {
+            catch (IOException ex) {
                 throw new IllegalArgumentException();
             }
 
-            ws = newWebSocket(request);
-            try {
-                synchronized (condVar) {
-                    condVar.wait(3000);
+            CompletableFuture<Boolean> handshake = new CompletableFuture<>();
+            MonitorDispatcher<T> newDispatcher = new MonitorDispatcher<>(dispatchCapacity, overflowPolicy,
+                    dispatchExecutor, this::decode, listener);
+            WebSocketListenerImpl webSocketListener = new WebSocketListenerImpl(request, newDispatcher, handshake);
+            okhttp3.WebSocket webSocket;
+            // The connection is set up together with the state, so stop() never sees it half done
+            synchronized (condVar) {
+                switch(state) {
+                    case WS_INIT:
+                    case WS_STOP:
+                        break;
+                    default:
+                        throw new IllegalStateException();
                 }
-            } catch (InterruptedException ex) {
-                throw new IllegalStateException();
+                this.listener = listener;
+                dispatcher = newDispatcher;
+                webSocket = ws = newWebSocket(webSocketListener);
+                state = WsState.WS_REQUEST;
             }
-            return state == WsState.WS_START;
+            ScheduledFuture<?> expiry = timer().schedule(
+                    () -> webSocketListener.expire(webSocket), timeout, unit);
+            handshake.whenComplete((started, ex) -> expiry.cancel(false));
+            return handshake;
         }
 
         @Override
@@ -329,6 +842,8 @@ public class HttpProvider implements Provider {
                     case WS_STOP:
                         throw new IllegalStateException(state.toString());
                     default:
+                        // The notifications not delivered yet are discarded
+                        dispatcher.clear();
                         ws.close(1000, null);
                         ws = null;
                         state = WsState.WS_STOP;
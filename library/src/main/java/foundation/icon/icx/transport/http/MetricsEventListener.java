@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.jfr.FlightEvents;
+import foundation.icon.icx.transport.metrics.CallMetrics;
+import foundation.icon.icx.transport.metrics.CallMetrics.Phase;
+import foundation.icon.icx.transport.metrics.MetricsListener;
+import okhttp3.Call;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the phases of an OkHttp call and reports them to the {@link MetricsListener}
+ * and the flight recorder.
+ *
+ * <p>It is attached to the request as a tag, and the events are forwarded to the listener
+ * created by the original factory of the client as well.
+ */
+final class MetricsEventListener extends ForwardingEventListener {
+
+    private final MetricsListener listener;
+    private final FlightEvents.Event flightEvent;
+    private final String endpoint;
+    private final String method;
+    private final long[] durations = new long[Phase.values().length];
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+    private long responseBodyStart;
+    private long requestBytes = -1;
+    private long responseBytes = -1;
+    private int status;
+    private Long errorCode;
+
+    /**
+     * @param listener the listener of the metrics, or null
+     * @param flightEvent the event of the flight recorder begun for the call, or null
+     */
+    MetricsEventListener(MetricsListener listener, FlightEvents.Event flightEvent, HttpUrl url, String method) {
+        this.listener = listener;
+        this.flightEvent = flightEvent;
+        this.endpoint = url.scheme() + "://" + url.host() + ":" + url.port();
+        this.method = method;
+        Arrays.fill(durations, -1);
+    }
+
+    void decoded(long nanos) {
+        add(Phase.DECODE, nanos);
+    }
+
+    void converted(long nanos) {
+        add(Phase.CONVERT, nanos);
+    }
+
+    void error(long code) {
+        errorCode = code;
+    }
+
+    /**
+     * Reports the call once, when the result is converted or the call fails
+     */
+    void finish(boolean successful) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        if (callStart != 0) {
+            durations[Phase.TOTAL.ordinal()] = System.nanoTime() - callStart;
+        }
+        if (listener != null) {
+            listener.onEnd(new CallMetrics(endpoint, method, durations, requestBytes, responseBytes,
+                    errorCode, successful));
+        }
+        if (flightEvent != null) {
+            flightEvent.set("method", method)
+                    .set("endpoint", endpoint)
+                    .set("status", status)
+                    .set("requestBytes", Math.max(0, requestBytes))
+                    .set("responseBytes", Math.max(0, responseBytes))
+                    .set("decodeTime", Math.max(0, durations[Phase.DECODE.ordinal()]))
+                    .set("successful", successful)
+                    .commit();
+        }
+    }
+
+    private void add(Phase phase, long nanos) {
+        int index = phase.ordinal();
+        durations[index] = durations[index] < 0 ? nanos : durations[index] + nanos;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+        if (listener != null) {
+            listener.onStart(endpoint, method);
+        }
+        super.callStart(call);
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+        super.dnsStart(call, domainName);
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        add(Phase.DNS, System.nanoTime() - dnsStart);
+        super.dnsEnd(call, domainName, inetAddressList);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+        super.connectStart(call, inetSocketAddress, proxy);
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = System.nanoTime();
+        super.secureConnectStart(call);
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        add(Phase.TLS, System.nanoTime() - secureConnectStart);
+        super.secureConnectEnd(call, handshake);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        add(Phase.CONNECT, System.nanoTime() - connectStart);
+        super.connectEnd(call, inetSocketAddress, proxy, protocol);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                              IOException ioe) {
+        add(Phase.CONNECT, System.nanoTime() - connectStart);
+        super.connectFailed(call, inetSocketAddress, proxy, protocol, ioe);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStart = System.nanoTime();
+        super.requestHeadersStart(call);
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        requestBytes = byteCount;
+        super.requestBodyEnd(call, byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        // A redirect or a retry sends the request again, then only the last exchange is measured
+        durations[Phase.TIME_TO_FIRST_BYTE.ordinal()] = System.nanoTime() - requestStart;
+        super.responseHeadersStart(call);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        status = response.code();
+        super.responseHeadersEnd(call, response);
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        responseBodyStart = System.nanoTime();
+        super.responseBodyStart(call);
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        // The body is closed after the conversion, so the decoding and the conversion are in it
+        durations[Phase.BODY_READ.ordinal()] = System.nanoTime() - responseBodyStart;
+        responseBytes = byteCount;
+        super.responseBodyEnd(call, byteCount);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        super.callFailed(call, ioe);
+        finish(false);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.OverflowPolicy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers the frames of a monitor in a bounded ring, and decodes and delivers them on the executor
+ * one batch at a time, so that the reader thread of the connection never waits for the listener
+ * unless the policy is {@link OverflowPolicy#BLOCK}.
+ */
+class MonitorDispatcher<T> {
+
+    static final int MAX_BATCH = 128;
+    private static ExecutorService defaultExecutor;
+
+    interface Decoder<T> {
+        T decode(String frame) throws IOException;
+    }
+
+    private final String[] ring;
+    private final OverflowPolicy policy;
+    private final Executor executor;
+    private final Decoder<T> decoder;
+    private final Monitor.Listener<T> listener;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private int head;
+    private int size;
+    private boolean draining;
+    private boolean closed;
+    private boolean finished;
+    private Runnable terminal;
+
+    MonitorDispatcher(int capacity, OverflowPolicy policy, Executor executor,
+                      Decoder<T> decoder, Monitor.Listener<T> listener) {
+        this.ring = new String[capacity];
+        this.policy = policy;
+        this.executor = executor != null ? executor : defaultExecutor();
+        this.decoder = decoder;
+        this.listener = listener;
+    }
+
+    // Listeners may block, so the threads are not bounded, and they are released when idle
+    private static synchronized Executor defaultExecutor() {
+        if (defaultExecutor == null) {
+            AtomicInteger threadId = new AtomicInteger();
+            defaultExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), r -> {
+                Thread thread = new Thread(r, "icx-monitor-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Buffers the frame, or returns false if it overflows with {@link OverflowPolicy#FAIL}
+     */
+    boolean offer(String frame) throws InterruptedException {
+        boolean schedule;
+        lock.lock();
+        try {
+            while (size == ring.length && !closed) {
+                if (policy == OverflowPolicy.BLOCK) {
+                    notFull.await();
+                } else if (policy == OverflowPolicy.DROP_OLDEST) {
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    size--;
+                    droppedCount.incrementAndGet();
+                } else {
+                    return false;
+                }
+            }
+            if (closed) {
+                return true;
+            }
+            ring[(head + size) % ring.length] = frame;
+            size++;
+            schedule = !draining;
+            draining = true;
+        } finally {
+            lock.unlock();
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * Runs the given callback after the buffered frames, and ignores the frames offered later
+     */
+    void finish(Runnable callback) {
+        boolean schedule;
+        lock.lock();
+        try {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            closed = true;
+            terminal = callback;
+            notFull.signalAll();
+            schedule = !draining;
+            draining = true;
+        } finally {
+            lock.unlock();
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Discards the buffered frames and ignores the frames offered later
+     */
+    void clear() {
+        lock.lock();
+        try {
+            closed = true;
+            while (size > 0) {
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void drain() {
+        List<String> frames = new ArrayList<>();
+        for (;;) {
+            Runnable callback = null;
+            lock.lock();
+            try {
+                if (size == 0) {
+                    if (terminal == null) {
+                        draining = false;
+                        return;
+                    }
+                    callback = terminal;
+                    terminal = null;
+                } else {
+                    while (size > 0 && frames.size() < MAX_BATCH) {
+                        frames.add(ring[head]);
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        size--;
+                    }
+                    notFull.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (callback != null) {
+                    callback.run();
+                } else {
+                    deliver(frames);
+                }
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+            frames.clear();
+        }
+    }
+
+    private void deliver(List<String> frames) {
+        List<T> events = new ArrayList<>(frames.size());
+        for (String frame : frames) {
+            try {
+                events.add(decoder.decode(frame));
+            } catch (IOException | RuntimeException e) {
+                flush(events);
+                listener.onError(100);
+            }
+        }
+        flush(events);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void flush(List<T> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (listener instanceof Monitor.BatchListener) {
+            ((Monitor.BatchListener<T>) listener).onEvents(new ArrayList<>(events));
+        } else {
+            for (T event : events) {
+                listener.onEvent(event);
+            }
+        }
+        events.clear();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+/**
+ * The priority classes of the requests sent by {@link HttpProvider}.
+ * Each class has its own dispatcher and connection pool, so the requests of a class
+ * do not queue behind the requests of the others.
+ */
+public enum Priority {
+    /**
+     * The latency-critical requests, like sending a transaction and waiting for its result.
+     * They always use this class.
+     */
+    HIGH,
+    /**
+     * The requests by default
+     */
+    NORMAL,
+    /**
+     * The bulk requests like backfilling the blocks, which should not delay the other requests
+     */
+    LOW
+}
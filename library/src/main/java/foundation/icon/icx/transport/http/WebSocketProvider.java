@@ -0,0 +1,428 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.Callback;
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcCodec;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.MonitorSpec;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code WebSocketProvider} class transports JSON-RPC payloads through long-lived WebSocket connections.
+ *
+ * <p>It keeps one connection per endpoint and sends all the requests over it without waiting for
+ * the responses of the previous ones. Every request is sent with an id unique in the connection,
+ * and the responses are matched to the requests by the id regardless of their order.
+ * The connection is opened on the first request and reopened after it fails.
+ * The monitors are opened on their own connections as {@link HttpProvider} does.
+ *
+ * <p>A request without its own time limit is limited by the read timeout of the http client.
+ * The connection is pinged every 30 seconds unless the client has its own ping interval,
+ * so a connection which has silently gone away fails the requests waiting on it.
+ * A frame which cannot be matched to a request, like an unparsable frame or an error without an id,
+ * fails all the requests waiting on the connection, since any of them may have lost its response.
+ */
+public class WebSocketProvider implements Provider, Closeable {
+
+    private static final long PING_INTERVAL = 30;
+
+    private final OkHttpClient httpClient;
+    private final long defaultTimeout;
+    private final HttpProvider httpProvider;
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Map<String, Connection> connections = new HashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "icx-ws-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Initializes a new {@code WebSocketProvider} with the custom http client object and the given endpoint url.
+     *
+     * @param httpClient a custom http client to open the connections
+     * @param url an endpoint url, ex) {@code http://localhost:9000/api/v3}
+     */
+    public WebSocketProvider(OkHttpClient httpClient, String url) {
+        this.httpClient = httpClient.pingIntervalMillis() > 0 ? httpClient
+                : httpClient.newBuilder().pingInterval(PING_INTERVAL, TimeUnit.SECONDS).build();
+        this.defaultTimeout = TimeUnit.MILLISECONDS.toNanos(httpClient.readTimeoutMillis());
+        this.httpProvider = new HttpProvider(httpClient, url);
+    }
+
+    /**
+     * Initializes a new {@code WebSocketProvider} with the given endpoint url.
+     * This will use a default http client object for the operation.
+     *
+     * @param url an endpoint url, ex) {@code http://localhost:9000/api/v3}
+     */
+    public WebSocketProvider(String url) {
+        this(HttpProvider.createDefaultClient(), url);
+    }
+
+    /**
+     * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
+     */
+    @Override
+    public <T> Request<T> request(final foundation.icon.icx.transport.jsonrpc.Request request, final RpcConverter<T> converter) {
+        return new WebSocketCall<>(Collections.singletonList(request), responses -> {
+            Response response = responses.get(0);
+            if (response.getError() != null) {
+                throw response.getError();
+            }
+            return converter.convertTo(response.getResult());
+        });
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<Response>> requestBatch(final List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("Empty batch");
+        }
+        String url = httpProvider.getUrl(requests.get(0).getMethod());
+        for (foundation.icon.icx.transport.jsonrpc.Request request : requests) {
+            if (!url.equals(httpProvider.getUrl(request.getMethod()))) {
+                throw new IllegalArgumentException("All the requests in a batch should have the same endpoint");
+            }
+        }
+        return new WebSocketCall<>(new ArrayList<>(requests), responses -> responses);
+    }
+
+    /**
+     * @see Provider#monitor(MonitorSpec, RpcConverter)
+     */
+    @Override
+    public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+        return httpProvider.monitor(spec, converter);
+    }
+
+    /**
+     * Closes the connections, and the requests waiting for the responses fail
+     */
+    @Override
+    public void close() {
+        List<Connection> list;
+        synchronized (connections) {
+            list = new ArrayList<>(connections.values());
+            connections.clear();
+        }
+        for (Connection connection : list) {
+            connection.webSocket.close(1000, null);
+            connection.fail(new IOException("Closed"));
+        }
+        scheduler.shutdownNow();
+    }
+
+    private Connection getConnection(String url) {
+        synchronized (connections) {
+            Connection connection = connections.get(url);
+            if (connection == null || connection.closed) {
+                connection = new Connection(url);
+                connections.put(url, connection);
+                okhttp3.Request httpRequest = new okhttp3.Request.Builder()
+                        .url(url)
+                        .build();
+                connection.webSocket = httpClient.newWebSocket(httpRequest, connection);
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * A request or a batch waiting for its response
+     */
+    private static class Pending {
+        final long baseId;
+        final List<foundation.icon.icx.transport.jsonrpc.Request> requests;
+        final CompletableFuture<List<Response>> future = new CompletableFuture<>();
+
+        Pending(long baseId, List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+            this.baseId = baseId;
+            this.requests = requests;
+        }
+
+        // Restores the ids of the original requests
+        void complete(Response[] responses) {
+            List<Response> list = new ArrayList<>(responses.length);
+            for (Response response : responses) {
+                int index = (int) (response.getId() - baseId);
+                long id = index >= 0 && index < requests.size() ? requests.get(index).getId() : response.getId();
+                list.add(new Response(id, response.getResult(), response.getError()));
+            }
+            future.complete(list);
+        }
+    }
+
+    private class Connection extends WebSocketListener {
+        private final String url;
+        private final Map<Long, Pending> pendings = new ConcurrentHashMap<>();
+        private volatile WebSocket webSocket;
+        private volatile boolean closed;
+
+        Connection(String url) {
+            this.url = url;
+        }
+
+        void send(Pending pending, String payload) {
+            for (int i = 0; i < pending.requests.size(); i++) {
+                pendings.put(pending.baseId + i, pending);
+            }
+            pending.future.whenComplete((result, exception) -> remove(pending));
+            if (closed) {
+                pending.future.completeExceptionally(new IOException("Connection closed"));
+            } else if (!webSocket.send(payload)) {
+                // The outgoing queue is full or the connection is being closed
+                pending.future.completeExceptionally(new IOException("Failed to send the request"));
+            }
+        }
+
+        private void remove(Pending pending) {
+            for (int i = 0; i < pending.requests.size(); i++) {
+                pendings.remove(pending.baseId + i, pending);
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            Response[] responses;
+            try {
+                if (text.trim().startsWith("[")) {
+                    responses = RpcCodec.readBatchResponse(text);
+                } else {
+                    responses = new Response[]{RpcCodec.readResponse(text)};
+                }
+            } catch (IOException e) {
+                failPendings(new IOException("Invalid response: " + e.getMessage(), e));
+                return;
+            }
+            if (responses.length == 0) {
+                return;
+            }
+            // The ids start from 1, so 0 is the null id of an error which is not for any request
+            if (responses[0].getId() == 0) {
+                RpcError error = responses[0].getError();
+                failPendings(error != null ? error : new IOException("Response without id"));
+                return;
+            }
+            // The requests which have timed out or been canceled are no longer pending
+            Pending pending = pendings.get(responses[0].getId());
+            if (pending != null) {
+                pending.complete(responses);
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(1000, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            fail(new IOException("Connection closed: " + code + " " + reason));
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, okhttp3.Response response) {
+            fail(t instanceof IOException ? (IOException) t : new IOException(t));
+        }
+
+        void fail(IOException exception) {
+            closed = true;
+            synchronized (connections) {
+                connections.remove(url, this);
+            }
+            failPendings(exception);
+        }
+
+        private void failPendings(IOException exception) {
+            for (Pending pending : new ArrayList<>(pendings.values())) {
+                pending.future.completeExceptionally(exception);
+            }
+        }
+    }
+
+    /**
+     * Converts the responses of the requests into the result
+     */
+    private interface ResponseConverter<T> {
+        T convert(List<Response> responses) throws IOException;
+    }
+
+    private class WebSocketCall<T> implements Request<T> {
+        private final List<foundation.icon.icx.transport.jsonrpc.Request> requests;
+        private final ResponseConverter<T> converter;
+        private final Set<CompletableFuture<List<Response>>> futures = ConcurrentHashMap.newKeySet();
+        private volatile long timeout;
+        private volatile boolean canceled;
+
+        WebSocketCall(List<foundation.icon.icx.transport.jsonrpc.Request> requests, ResponseConverter<T> converter) {
+            this.requests = requests;
+            this.converter = converter;
+        }
+
+        private CompletableFuture<List<Response>> send() {
+            int size = requests.size();
+            long baseId = idSequence.getAndAdd(size) + 1;
+            Pending pending = new Pending(baseId, requests);
+            futures.add(pending.future);
+            pending.future.whenComplete((result, exception) -> futures.remove(pending.future));
+            if (canceled) {
+                pending.future.completeExceptionally(new IOException("Canceled"));
+                return pending.future;
+            }
+            long limit = timeout > 0 ? timeout : defaultTimeout;
+            if (limit > 0) {
+                ScheduledFuture<?> task = scheduler.schedule(
+                        () -> pending.future.completeExceptionally(new InterruptedIOException("timeout")),
+                        limit, TimeUnit.NANOSECONDS);
+                pending.future.whenComplete((result, exception) -> task.cancel(false));
+            }
+            Object payload;
+            if (size == 1) {
+                foundation.icon.icx.transport.jsonrpc.Request request = requests.get(0);
+                payload = new foundation.icon.icx.transport.jsonrpc.Request(baseId, request.getMethod(), request.getParams());
+            } else {
+                List<foundation.icon.icx.transport.jsonrpc.Request> batch = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    foundation.icon.icx.transport.jsonrpc.Request request = requests.get(i);
+                    batch.add(new foundation.icon.icx.transport.jsonrpc.Request(
+                            baseId + i, request.getMethod(), request.getParams()));
+                }
+                payload = batch;
+            }
+            try {
+                getConnection(httpProvider.getUrl(requests.get(0).getMethod()))
+                        .send(pending, RpcCodec.writeAsString(payload));
+            } catch (IOException e) {
+                pending.future.completeExceptionally(e);
+            }
+            return pending.future;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            for (CompletableFuture<List<Response>> future : futures) {
+                future.completeExceptionally(new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public Request<T> timeout(long timeout, TimeUnit unit) {
+            this.timeout = unit.toNanos(timeout);
+            return this;
+        }
+
+        @Override
+        public T execute() throws IOException {
+            CompletableFuture<List<Response>> future = send();
+            try {
+                return converter.convert(future.get());
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (CancellationException e) {
+                throw new InterruptedIOException("Canceled");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        @Override
+        public void execute(final Callback<T> callback) {
+            send().whenComplete((responses, exception) -> {
+                if (exception != null) {
+                    callback.onFailure(exception instanceof Exception ? (Exception) exception : new IOException(exception));
+                    return;
+                }
+                T result;
+                try {
+                    result = converter.convert(responses);
+                } catch (Exception e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onSuccess(result);
+            });
+        }
+
+        @Override
+        public CompletableFuture<T> executeAsync(final Executor executor) {
+            final CompletableFuture<List<Response>> future = send();
+            final CompletableFuture<T> result = new CompletableFuture<>();
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+            future.whenComplete((responses, exception) -> {
+                try {
+                    executor.execute(() -> {
+                        if (exception != null) {
+                            result.completeExceptionally(exception);
+                            return;
+                        }
+                        try {
+                            result.complete(converter.convert(responses));
+                        } catch (Exception e) {
+                            result.completeExceptionally(e);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return result;
+        }
+    }
+}
@@ -28,6 +28,22 @@ public class Response {
 
     private RpcError error;
 
+    public Response() {
+    }
+
+    /**
+     * Creates a response, ex) to answer a request with the result received for another id
+     *
+     * @param id the id of the request
+     * @param result the result or null if it failed
+     * @param error the error or null if it succeeded
+     */
+    public Response(long id, RpcItem result, RpcError error) {
+        this.id = id;
+        this.result = result;
+        this.error = error;
+    }
+
     public String getJsonrpc() {
         return jsonrpc;
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.jsonrpc;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * RpcCodec encodes and decodes the jsonrpc payloads.
+ * The underlying mapper, readers and writer are built once and shared by all the transports,
+ * so the serializers and deserializers resolved by Jackson are cached across the calls.
+ * All the methods are thread-safe.
+ */
+public final class RpcCodec {
+
+    private static final ObjectMapper mapper = createMapper();
+    private static final ObjectWriter writer = mapper.writer()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final ObjectReader responseReader = mapper.readerFor(Response.class);
+    private static final ObjectReader batchResponseReader = mapper.readerFor(Response[].class);
+    private static final ObjectReader itemReader = mapper.readerFor(RpcItem.class);
+    private static final ObjectReader errorReader = mapper.readerFor(RpcError.class);
+
+    private RpcCodec() {
+    }
+
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(RpcItem.class, new RpcItemSerializer());
+        module.addDeserializer(RpcItem.class, new RpcItemDeserializer());
+        mapper.registerModule(module);
+        return mapper;
+    }
+
+    /**
+     * Writes the value as JSON to the output stream
+     *
+     * @param out the output stream, it is not closed by this method
+     * @param value a request, a list of requests or an {@code RpcItem}
+     * @throws IOException an exception if there exist errors
+     */
+    public static void write(OutputStream out, Object value) throws IOException {
+        writer.writeValue(out, value);
+    }
+
+    /**
+     * Writes the value as a JSON string
+     *
+     * @param value a request, a list of requests or an {@code RpcItem}
+     * @return the JSON string
+     * @throws IOException an exception if there exist errors
+     */
+    public static String writeAsString(Object value) throws IOException {
+        return writer.writeValueAsString(value);
+    }
+
+    /**
+     * Reads a jsonrpc response
+     *
+     * @param content the JSON string of the response
+     * @return the response
+     * @throws IOException an exception if the content is not valid
+     */
+    public static Response readResponse(String content) throws IOException {
+        return responseReader.readValue(content);
+    }
+
+    /**
+     * Reads a jsonrpc response from the stream in a single pass
+     *
+     * @param in the input stream of the response, it is closed by this method
+     * @return the response
+     * @throws IOException an exception if the content is not valid
+     */
+    public static Response readResponse(InputStream in) throws IOException {
+        return responseReader.readValue(in);
+    }
+
+    /**
+     * Reads the responses of a jsonrpc batch from the stream in a single pass.
+     * If the server replies with a single error object instead of an array, the error is thrown.
+     *
+     * @param in the input stream of the responses, it is closed by this method
+     * @return the responses
+     * @throws IOException an exception if the content is not valid
+     */
+    public static Response[] readBatchResponse(InputStream in) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                // The server replies with a single error object when the batch itself is invalid
+                Response response = responseReader.readValue(parser);
+                if (response.getError() != null) {
+                    throw response.getError();
+                }
+                throw new RpcError(-32603, "Invalid batch response");
+            }
+            return batchResponseReader.readValue(parser);
+        }
+    }
+
+    /**
+     * Reads the responses of a jsonrpc batch
+     *
+     * @param content the JSON array of the responses
+     * @return the responses
+     * @throws IOException an exception if the content is not valid
+     */
+    public static Response[] readBatchResponse(String content) throws IOException {
+        return batchResponseReader.readValue(content);
+    }
+
+    /**
+     * Reads an {@code RpcItem}
+     *
+     * @param content the JSON string of the item
+     * @return the item
+     * @throws IOException an exception if the content is not valid
+     */
+    public static RpcItem readItem(String content) throws IOException {
+        return itemReader.readValue(content);
+    }
+
+    /**
+     * Reads an {@code RpcError}
+     *
+     * @param content the JSON string of the error
+     * @return the error
+     * @throws IOException an exception if the content is not valid
+     */
+    public static RpcError readError(String content) throws IOException {
+        return errorReader.readValue(content);
+    }
+}
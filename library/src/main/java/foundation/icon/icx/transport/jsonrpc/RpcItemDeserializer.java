@@ -16,18 +16,18 @@
 
 package foundation.icon.icx.transport.jsonrpc;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Iterator;
 
 /**
- * Deserializers for jsonrpc value
+ * Deserializers for jsonrpc value.
+ * It builds the item token by token without an intermediate tree.
  */
 public class RpcItemDeserializer extends JsonDeserializer<RpcItem> {
 
@@ -35,38 +35,47 @@ public class RpcItemDeserializer extends JsonDeserializer<RpcItem> {
     public RpcItem deserialize(
             JsonParser parser, DeserializationContext context)
             throws IOException {
-        TreeNode node = parser.readValueAsTree();
-        return deserialize(node);
+        return deserialize(parser, parser.getCurrentToken());
     }
 
-    private RpcItem deserialize(TreeNode node) {
-        if (node.isObject()) {
-            RpcObject.Builder builder = new RpcObject.Builder();
-            for (Iterator<String> it = node.fieldNames(); it.hasNext(); ) {
-                String fieldName = it.next();
-                TreeNode childNode = node.get(fieldName);
-                builder.put(fieldName, deserialize(childNode));
+    private RpcItem deserialize(JsonParser parser, JsonToken token) throws IOException {
+        if (token == null) {
+            throw new JsonParseException(parser, "Unexpected end-of-input");
+        }
+        switch (token) {
+            case START_OBJECT:
+                token = parser.nextToken();
+                // fall through
+            case FIELD_NAME: {
+                RpcObject.Builder builder = new RpcObject.Builder();
+                for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                    String fieldName = parser.getCurrentName();
+                    builder.put(fieldName, deserialize(parser, parser.nextToken()));
+                }
+                return builder.build();
             }
-            return builder.build();
-        } else if (node.isArray()) {
-            RpcArray.Builder builder = new RpcArray.Builder();
-            for (int i = 0; i < node.size(); i++) {
-                TreeNode childNode = node.get(i);
-                builder.add(deserialize(childNode));
+            case START_ARRAY: {
+                RpcArray.Builder builder = new RpcArray.Builder();
+                for (token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                    builder.add(deserialize(parser, token));
+                }
+                return builder.build();
             }
-            return builder.build();
-        } else {
-            JsonNode n = ((JsonNode) node);
-            if (n.isLong()) {
-                return new RpcValue(new BigInteger(String.valueOf(n.asLong())));
-            } else if (n.isInt()) {
-                return new RpcValue(new BigInteger(String.valueOf(n.asInt())));
-            } else if (n.isBoolean()) {
-                return new RpcValue(n.asBoolean());
-            } else if (n.isNull()) {
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                    return new RpcValue(BigInteger.valueOf(parser.getLongValue()));
+                }
+                return new RpcValue(parser.getText());
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return new RpcValue(parser.getBooleanValue());
+            case VALUE_NULL:
                 return RpcValue.NULL;
-            }
-            return new RpcValue(n.asText());
+            case VALUE_STRING:
+            case VALUE_NUMBER_FLOAT:
+                return new RpcValue(parser.getText());
+            default:
+                throw new JsonParseException(parser, "Unexpected token " + token);
         }
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.metrics;
+
+import java.util.Arrays;
+
+/**
+ * The metrics of a call.
+ * The response body is decoded while it is read, so {@link Phase#BODY_READ} overlaps with {@link Phase#DECODE}.
+ */
+public final class CallMetrics {
+
+    /**
+     * The phases of a call
+     */
+    public enum Phase {
+        /** Resolving the host name */
+        DNS,
+        /** Opening the connection, including the TLS handshake */
+        CONNECT,
+        /** The TLS handshake */
+        TLS,
+        /** From sending the request to receiving the first byte of the response */
+        TIME_TO_FIRST_BYTE,
+        /**
+         * From the first byte of the response body until the body is closed. The body is decoded
+         * as it is read, so this includes {@link #DECODE} and {@link #CONVERT}.
+         */
+        BODY_READ,
+        /** Decoding the JSON of the response, a part of {@link #BODY_READ} */
+        DECODE,
+        /** Converting the result into the object of the response type, a part of {@link #BODY_READ} */
+        CONVERT,
+        /** The whole call */
+        TOTAL
+    }
+
+    private final String endpoint;
+    private final String method;
+    private final long[] durations;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final Long errorCode;
+    private final boolean successful;
+
+    /**
+     * Creates the metrics of a call
+     *
+     * @param endpoint the endpoint of the call
+     * @param method the jsonrpc method of the call
+     * @param durations the durations of the phases in nanoseconds indexed by the ordinal of {@link Phase},
+     *                  -1 for the phases which did not happen
+     * @param requestBytes the size of the request body
+     * @param responseBytes the size of the response body
+     * @param errorCode the code of the {@code RpcError} of the response, or null if there is none
+     * @param successful whether the call returned the result
+     */
+    public CallMetrics(String endpoint, String method, long[] durations, long requestBytes, long responseBytes,
+                       Long errorCode, boolean successful) {
+        if (durations.length != Phase.values().length) {
+            throw new IllegalArgumentException("The durations should have all the phases");
+        }
+        this.endpoint = endpoint;
+        this.method = method;
+        this.durations = Arrays.copyOf(durations, durations.length);
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.errorCode = errorCode;
+        this.successful = successful;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the duration of the phase
+     *
+     * @param phase the phase
+     * @return the duration in nanoseconds, or -1 if the phase did not happen
+     */
+    public long getDuration(Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Returns the code of the {@code RpcError} of the response
+     *
+     * @return the code, or null if the response has no error
+     */
+    public Long getErrorCode() {
+        return errorCode;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CallMetrics{")
+                .append("endpoint=").append(endpoint)
+                .append(", method=").append(method);
+        for (Phase phase : Phase.values()) {
+            if (durations[phase.ordinal()] >= 0) {
+                builder.append(", ").append(phase).append('=').append(durations[phase.ordinal()]);
+            }
+        }
+        return builder.append(", requestBytes=").append(requestBytes)
+                .append(", responseBytes=").append(responseBytes)
+                .append(", errorCode=").append(errorCode)
+                .append(", successful=").append(successful)
+                .append('}').toString();
+    }
+}
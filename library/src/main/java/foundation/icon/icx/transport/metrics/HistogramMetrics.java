@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.metrics;
+
+import foundation.icon.icx.transport.metrics.CallMetrics.Phase;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code HistogramMetrics} class keeps the metrics of the calls in memory,
+ * aggregated per endpoint and jsonrpc method.
+ *
+ * <p>The durations of the phases are recorded in nanoseconds into a {@link Histogram} for each phase,
+ * so the percentiles can be read at any time without keeping the samples.
+ */
+public class HistogramMetrics implements MetricsListener {
+
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+    // Kept apart from the statistics, so the calls in flight across clear() are still counted
+    private final ConcurrentMap<String, AtomicLong> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public void onStart(String endpoint, String method) {
+        getOrCreate(endpoint, method).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onEnd(CallMetrics metrics) {
+        getOrCreate(metrics.getEndpoint(), metrics.getMethod()).record(metrics);
+    }
+
+    /**
+     * Returns the statistics of the calls of a method to an endpoint
+     *
+     * @param endpoint the endpoint, ex) {@code https://ctz.solidwallet.io:443}
+     * @param method the jsonrpc method, or {@code batch} for the batches
+     * @return the statistics, or null if there has been no call
+     */
+    public Stats getStats(String endpoint, String method) {
+        return stats.get(key(endpoint, method));
+    }
+
+    /**
+     * Returns the statistics of all the endpoints and methods
+     *
+     * @return the statistics
+     */
+    public Collection<Stats> getAll() {
+        return Collections.unmodifiableCollection(stats.values());
+    }
+
+    /**
+     * Removes all the statistics. The numbers of the calls in flight are kept.
+     */
+    public void clear() {
+        stats.clear();
+    }
+
+    private Stats getOrCreate(String endpoint, String method) {
+        return stats.computeIfAbsent(key(endpoint, method), k ->
+                new Stats(endpoint, method, inFlight.computeIfAbsent(k, n -> new AtomicLong())));
+    }
+
+    private static String key(String endpoint, String method) {
+        return endpoint + ' ' + method;
+    }
+
+    /**
+     * The statistics of the calls of a method to an endpoint
+     */
+    public static final class Stats {
+        private final String endpoint;
+        private final String method;
+        private final Map<Phase, Histogram> histograms = new EnumMap<>(Phase.class);
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicLong inFlight;
+        private final ConcurrentMap<Long, AtomicLong> errorCodes = new ConcurrentHashMap<>();
+
+        Stats(String endpoint, String method, AtomicLong inFlight) {
+            this.endpoint = endpoint;
+            this.method = method;
+            this.inFlight = inFlight;
+            for (Phase phase : Phase.values()) {
+                histograms.put(phase, new Histogram());
+            }
+        }
+
+        private void record(CallMetrics metrics) {
+            inFlight.decrementAndGet();
+            requestCount.incrementAndGet();
+            if (!metrics.isSuccessful()) {
+                errorCount.incrementAndGet();
+            }
+            if (metrics.getErrorCode() != null) {
+                errorCodes.computeIfAbsent(metrics.getErrorCode(), code -> new AtomicLong()).incrementAndGet();
+            }
+            requestBytes.addAndGet(Math.max(0, metrics.getRequestBytes()));
+            responseBytes.addAndGet(Math.max(0, metrics.getResponseBytes()));
+            for (Phase phase : Phase.values()) {
+                histograms.get(phase).record(metrics.getDuration(phase));
+            }
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Returns the histogram of the durations of the phase in nanoseconds
+         *
+         * @param phase the phase
+         * @return the histogram
+         */
+        public Histogram getHistogram(Phase phase) {
+            return histograms.get(phase);
+        }
+
+        /**
+         * Returns the number of the completed calls
+         *
+         * @return the number of the calls
+         */
+        public long getRequestCount() {
+            return requestCount.get();
+        }
+
+        /**
+         * Returns the number of the calls which did not return the result
+         *
+         * @return the number of the calls
+         */
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+        /**
+         * Returns the number of the responses per the code of the {@code RpcError}
+         *
+         * @return the numbers keyed by the error code
+         */
+        public Map<Long, Long> getErrorCodes() {
+            Map<Long, Long> result = new HashMap<>();
+            errorCodes.forEach((code, count) -> result.put(code, count.get()));
+            return result;
+        }
+
+        public long getRequestBytes() {
+            return requestBytes.get();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.get();
+        }
+
+        /**
+         * Returns the number of the calls in flight
+         *
+         * @return the number of the calls
+         */
+        public long getInFlight() {
+            return inFlight.get();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.metrics;
+
+/**
+ * A listener of the metrics of the calls made by the transport.
+ * It is called by the threads of the transport, so it should be thread-safe and return quickly.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called when a call starts
+     *
+     * @param endpoint the endpoint of the call, ex) {@code https://ctz.solidwallet.io:443}
+     * @param method the jsonrpc method of the call, or {@code batch} for a batch
+     */
+    void onStart(String endpoint, String method);
+
+    /**
+     * Called when a call ends, whether it succeeded or not
+     *
+     * @param metrics the metrics of the call
+     */
+    void onEnd(CallMetrics metrics);
+}
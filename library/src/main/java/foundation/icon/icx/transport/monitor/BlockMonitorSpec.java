@@ -16,6 +16,7 @@
 
 package foundation.icon.icx.transport.monitor;
 
+import foundation.icon.icx.transport.jsonrpc.RpcArray;
 import foundation.icon.icx.transport.jsonrpc.RpcObject;
 import foundation.icon.icx.transport.jsonrpc.RpcValue;
 
@@ -35,10 +36,14 @@ public class BlockMonitorSpec extends MonitorSpec {
     public RpcObject getParams() {
         RpcObject.Builder builder = new RpcObject.Builder()
                 .put("height", new RpcValue(this.height));
-        if (this.eventFilters != null) {
+        if (this.eventFilters != null && this.eventFilters.length > 0) {
+            RpcArray.Builder filters = new RpcArray.Builder();
             for (EventMonitorSpec.EventFilter ef : this.eventFilters) {
-                ef.apply(builder);
+                RpcObject.Builder filter = new RpcObject.Builder();
+                ef.apply(filter);
+                filters.add(filter.build());
             }
+            builder.put("eventFilters", filters.build());
         }
         return builder.build();
     }
@@ -16,6 +16,11 @@
 
 package foundation.icon.icx.transport.monitor;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 public interface Monitor<T> {
     interface Listener<T> {
         void onStart();
@@ -24,7 +29,33 @@ public interface Monitor<T> {
         void onClose();
     }
 
+    /**
+     * The listener which gets the notifications buffered together at once, to save the overhead of each call
+     */
+    interface BatchListener<T> extends Listener<T> {
+        void onEvents(List<T> msgs);
+
+        @Override
+        default void onEvent(T msg) {
+            onEvents(Collections.singletonList(msg));
+        }
+    }
+
     boolean start(Listener<T> listener);
 
+    /**
+     * Starts the monitor without blocking the caller, so that many monitors can be started together.
+     * The monitors which do not support it run {@link #start(Listener)} in the common pool,
+     * and they may have their own time limit of the handshake.
+     *
+     * @param listener the listener of the notifications
+     * @param timeout the time limit of the handshake
+     * @param unit the time unit of the time limit
+     * @return the future completed with whether the monitor has started
+     */
+    default CompletableFuture<Boolean> startAsync(Listener<T> listener, long timeout, TimeUnit unit) {
+        return CompletableFuture.supplyAsync(() -> start(listener));
+    }
+
     void stop();
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.monitor;
+
+/**
+ * The policies for the notifications which arrive while the buffer of a monitor is full
+ */
+public enum OverflowPolicy {
+    /**
+     * Stops reading the connection until the listener catches up, which slows down the node
+     */
+    BLOCK,
+    /**
+     * Discards the oldest notification in the buffer to keep the newest ones
+     */
+    DROP_OLDEST,
+    /**
+     * Closes the monitor, and the listener gets {@link Monitor.Listener#onError(long)}
+     * with {@link #ERROR_CODE} after the notifications in the buffer
+     */
+    FAIL;
+
+    /**
+     * The error code of the monitors closed by {@link #FAIL}
+     */
+    public static final long ERROR_CODE = 101;
+}
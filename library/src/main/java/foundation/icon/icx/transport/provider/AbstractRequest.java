@@ -0,0 +1,242 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Callback;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A base of the requests made by the provider decorators.
+ * The subclasses implement the synchronous and the future-based execution,
+ * and the callback-based execution is derived from the latter.
+ *
+ * <p>The subclasses pass the requests they make to {@link #track(Request)}, so that the time limit and
+ * the cancellation of this request are applied to them as well. The time limit covers the whole execution,
+ * so every request made during the execution gets the time remaining.
+ *
+ * @param <T> the data type of the response
+ */
+abstract class AbstractRequest<T> implements Request<T> {
+
+    private static ScheduledExecutorService timer;
+
+    private final Set<Request<?>> calls = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<?>> futures = ConcurrentHashMap.newKeySet();
+    private volatile long timeout;
+    private volatile long deadline;
+    private volatile boolean canceled;
+
+    abstract T doExecute() throws IOException;
+
+    abstract CompletableFuture<T> doExecuteAsync(Executor executor);
+
+    @Override
+    public final T execute() throws IOException {
+        start();
+        return doExecute();
+    }
+
+    @Override
+    public final CompletableFuture<T> executeAsync(Executor executor) {
+        CompletableFuture<T> future;
+        try {
+            start();
+            future = doExecuteAsync(executor);
+        } catch (IOException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        final CompletableFuture<T> result = future;
+        futures.add(result);
+        result.whenComplete((r, e) -> futures.remove(result));
+        long timeout = this.timeout;
+        if (timeout > 0 && !result.isDone()) {
+            ScheduledFuture<?> task = timer().schedule(
+                    () -> result.completeExceptionally(new InterruptedIOException("timeout")),
+                    timeout, TimeUnit.NANOSECONDS);
+            result.whenComplete((r, e) -> task.cancel(false));
+        }
+        return result;
+    }
+
+    @Override
+    public void execute(final Callback<T> callback) {
+        executeAsync().whenComplete((result, exception) -> {
+            if (exception == null) {
+                callback.onSuccess(result);
+            } else {
+                Throwable cause = unwrap(exception);
+                callback.onFailure(cause instanceof Exception ? (Exception) cause : new ExecutionException(cause));
+            }
+        });
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+        for (Request<?> call : calls) {
+            cancel(call);
+        }
+        for (CompletableFuture<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    @Override
+    public Request<T> timeout(long timeout, TimeUnit unit) {
+        this.timeout = unit.toNanos(timeout);
+        return this;
+    }
+
+    boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Returns the time remaining until the deadline of the current execution
+     *
+     * @return the time in nanoseconds, or {@code Long.MAX_VALUE} if there is no time limit
+     */
+    long remaining() {
+        long deadline = this.deadline;
+        return deadline == 0 ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    /**
+     * Applies the time remaining and the cancellation of this request to the given request made for it
+     */
+    <R> Request<R> track(Request<R> request) {
+        calls.add(request);
+        long remaining = remaining();
+        if (remaining != Long.MAX_VALUE) {
+            try {
+                request.timeout(Math.max(1, remaining), TimeUnit.NANOSECONDS);
+            } catch (UnsupportedOperationException ignored) {
+                // The async executions are still bounded by the time limit of this request
+            }
+        }
+        if (canceled) {
+            cancel(request);
+        }
+        return request;
+    }
+
+    private void start() throws IOException {
+        if (canceled) {
+            throw new IOException("Canceled");
+        }
+        calls.clear();
+        long timeout = this.timeout;
+        deadline = timeout > 0 ? System.nanoTime() + timeout : 0;
+    }
+
+    private static void cancel(Request<?> request) {
+        try {
+            request.cancel();
+        } catch (UnsupportedOperationException ignored) {
+            // The request completes by itself
+        }
+    }
+
+    private static synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "icx-timeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the cause of the exception thrown by a dependent stage of {@code CompletableFuture}
+     */
+    static Throwable unwrap(Throwable exception) {
+        if ((exception instanceof CompletionException || exception instanceof ExecutionException)
+                && exception.getCause() != null) {
+            return exception.getCause();
+        }
+        return exception;
+    }
+
+    /**
+     * Returns whether the failure is caused by the endpoint or the network rather than by the request itself.
+     * The jsonrpc errors replied by the node have negative codes, while the HTTP errors without
+     * a jsonrpc payload have the HTTP status code.
+     */
+    static boolean isEndpointFailure(Throwable exception) {
+        Throwable cause = unwrap(exception);
+        if (cause instanceof RpcError) {
+            return ((RpcError) cause).getCode() >= 0;
+        }
+        return cause instanceof IOException;
+    }
+
+    /**
+     * Waits for the future until the deadline of the current execution,
+     * and rethrows its failure as it was thrown by the synchronous execution
+     */
+    <R> R await(CompletableFuture<R> future) throws IOException {
+        futures.add(future);
+        try {
+            long remaining = remaining();
+            if (remaining == Long.MAX_VALUE) {
+                return future.get();
+            }
+            return future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new InterruptedIOException("timeout");
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Canceled");
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            futures.remove(future);
+        }
+    }
+}
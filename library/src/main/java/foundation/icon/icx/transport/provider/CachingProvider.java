@@ -0,0 +1,277 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.MonitorSpec;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code CachingProvider} class caches the results of the requests for the data
+ * which never changes once it exists on the chain, like the blocks and the confirmed transactions.
+ *
+ * <p>The results are kept in a LRU cache bounded by the number of the entries and keyed by
+ * the method and the parameters. Only the successful results are cached, and the transactions
+ * and their results are cached only after they are included in a block.
+ * The requests for the mutable state like {@code icx_getLastBlock}, {@code icx_getBalance}
+ * and {@code icx_call} are always sent to the endpoint.
+ */
+public class CachingProvider implements Provider {
+
+    /**
+     * The methods cached by default
+     */
+    public static final Set<String> IMMUTABLE_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "icx_getBlockByHeight",
+            "icx_getBlockByHash",
+            "icx_getTransactionByHash",
+            "icx_getTransactionResult",
+            "icx_getDataByHash",
+            "icx_getBlockHeaderByHeight",
+            "icx_getVotesByHeight",
+            "icx_getProofForResult")));
+
+    private final Provider provider;
+    private final Set<String> methods;
+    private final Map<String, RpcItem> cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private CachingProvider(Builder builder) {
+        this.provider = builder.provider;
+        this.methods = new HashSet<>(builder.methods);
+        final int maxSize = builder.maxSize;
+        this.cache = new LinkedHashMap<String, RpcItem>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RpcItem> eldest) {
+                if (size() > maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
+     */
+    @Override
+    public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        if (!methods.contains(request.getMethod())) {
+            return provider.request(request, converter);
+        }
+        return new CachedRequest<>(request, converter);
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<Response>> requestBatch(List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        return provider.requestBatch(requests);
+    }
+
+    /**
+     * @see Provider#monitor(MonitorSpec, RpcConverter)
+     */
+    @Override
+    public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+        return provider.monitor(spec, converter);
+    }
+
+    /**
+     * Returns the number of the requests answered from the cache
+     *
+     * @return the number of the hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of the cacheable requests sent to the endpoint
+     *
+     * @return the number of the misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of the entries evicted to bound the size of the cache
+     *
+     * @return the number of the evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the number of the cached entries
+     *
+     * @return the size of the cache
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all the cached entries
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private synchronized RpcItem get(String key) {
+        return cache.get(key);
+    }
+
+    private synchronized void put(String key, RpcItem item) {
+        cache.put(key, item);
+    }
+
+    // The transactions and their results change until they are included in a block
+    private static boolean isFinal(String method, RpcItem result) {
+        if ("icx_getTransactionByHash".equals(method) || "icx_getTransactionResult".equals(method)) {
+            return result instanceof RpcObject && ((RpcObject) result).getItem("blockHeight") != null;
+        }
+        return result != null && !result.isNull();
+    }
+
+    private class CachedRequest<T> extends AbstractRequest<T> {
+        private final foundation.icon.icx.transport.jsonrpc.Request request;
+        private final RpcConverter<T> converter;
+        private final String key;
+
+        CachedRequest(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+            this.request = request;
+            this.converter = converter;
+            this.key = RequestKeys.of(request);
+        }
+
+        @Override
+        T doExecute() throws IOException {
+            RpcItem item = get(key);
+            if (item != null) {
+                hitCount.incrementAndGet();
+            } else {
+                missCount.incrementAndGet();
+                item = track(provider.request(request, Converters.RPC_ITEM)).execute();
+                store(item);
+            }
+            return converter.convertTo(item);
+        }
+
+        @Override
+        CompletableFuture<T> doExecuteAsync(Executor executor) {
+            RpcItem cached = get(key);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return CompletableFuture.supplyAsync(() -> converter.convertTo(cached), executor);
+            }
+            missCount.incrementAndGet();
+            CompletableFuture<RpcItem> future = track(provider.request(request, Converters.RPC_ITEM)).executeAsync(executor);
+            CompletableFuture<T> result = future.thenApply(item -> {
+                store(item);
+                return converter.convertTo(item);
+            });
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+            return result;
+        }
+
+        private void store(RpcItem item) {
+            if (isFinal(request.getMethod(), item)) {
+                put(key, item);
+            }
+        }
+    }
+
+    /**
+     * Builder for CachingProvider
+     */
+    public static class Builder {
+        private final Provider provider;
+        private final Set<String> methods = new HashSet<>(IMMUTABLE_METHODS);
+        private int maxSize = 10_000;
+
+        /**
+         * Creates a builder
+         *
+         * @param provider the provider to send the requests which are not cached
+         */
+        public Builder(Provider provider) {
+            this.provider = provider;
+        }
+
+        /**
+         * Sets the maximum number of the cached entries
+         *
+         * @param maxSize the number of the entries
+         * @return this builder
+         */
+        public Builder maxSize(int maxSize) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("maxSize should be positive");
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets the methods whose results are cached instead of {@link #IMMUTABLE_METHODS}.
+         * {@code icx_getScoreApi} may be added if the SCOREs are not updated,
+         * because an update changes the APIs of the SCORE.
+         *
+         * @param methods the names of the methods
+         * @return this builder
+         */
+        public Builder methods(Collection<String> methods) {
+            this.methods.clear();
+            this.methods.addAll(methods);
+            return this;
+        }
+
+        public CachingProvider build() {
+            return new CachingProvider(this);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.MonitorSpec;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code CoalescingProvider} class shares a call among the identical read requests in flight.
+ *
+ * <p>While a read request is in flight, the same requests with the same method, parameters and
+ * converter do not make another call but wait for it, and all of them get the same decoded result.
+ * The requests which change the state are always sent.
+ *
+ * <p>The time limit and the cancellation of a request apply only to that request.
+ * The shared call is cancelled when all the requests waiting for it have been cancelled or timed out.
+ */
+public class CoalescingProvider implements Provider {
+
+    private final Provider provider;
+    private final Map<Key, Shared<?>> inFlight = new HashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Creates a provider coalescing the requests to the given provider
+     *
+     * @param provider the provider to send the requests
+     */
+    public CoalescingProvider(Provider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
+     */
+    @Override
+    public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        if (!Methods.isIdempotentRead(request.getMethod())) {
+            return provider.request(request, converter);
+        }
+        return new CoalescedRequest<>(request, converter);
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<Response>> requestBatch(List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        return provider.requestBatch(requests);
+    }
+
+    /**
+     * @see Provider#monitor(MonitorSpec, RpcConverter)
+     */
+    @Override
+    public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+        return provider.monitor(spec, converter);
+    }
+
+    /**
+     * Returns the number of the requests which shared the call of another request
+     *
+     * @return the number of the requests
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private static final class Key {
+        private final String request;
+        private final RpcConverter<?> converter;
+
+        Key(String request, RpcConverter<?> converter) {
+            this.request = request;
+            this.converter = converter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return request.equals(key.request) && converter == key.converter;
+        }
+
+        @Override
+        public int hashCode() {
+            return request.hashCode() * 31 + System.identityHashCode(converter);
+        }
+    }
+
+    // The call shared by the identical requests, which is cancelled once no caller waits for it
+    private static final class Shared<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        volatile Request<T> call;
+        volatile CompletableFuture<T> future;
+        int callers;
+
+        void cancel() {
+            Request<T> call = this.call;
+            if (call != null) {
+                try {
+                    call.cancel();
+                } catch (UnsupportedOperationException ignored) {
+                    // The call completes by itself
+                }
+            }
+            CompletableFuture<T> future = this.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // Each caller waits for the shared call on its own future, so its time limit and cancellation
+    // apply only to itself, and the shared call has no time limit of any caller
+    private class CoalescedRequest<T> extends AbstractRequest<T> {
+        private final foundation.icon.icx.transport.jsonrpc.Request request;
+        private final RpcConverter<T> converter;
+        private final Key key;
+
+        CoalescedRequest(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+            this.request = request;
+            this.converter = converter;
+            this.key = new Key(RequestKeys.of(request), converter);
+        }
+
+        @Override
+        T doExecute() throws IOException {
+            return await(join(Runnable::run));
+        }
+
+        @Override
+        CompletableFuture<T> doExecuteAsync(Executor executor) {
+            return join(executor);
+        }
+
+        // Joins the call in flight or starts a new one, and returns the future of this caller
+        @SuppressWarnings("unchecked")
+        private CompletableFuture<T> join(Executor executor) {
+            Shared<T> shared;
+            boolean leader = false;
+            synchronized (inFlight) {
+                shared = (Shared<T>) inFlight.get(key);
+                if (shared == null) {
+                    shared = new Shared<>();
+                    inFlight.put(key, shared);
+                    leader = true;
+                } else {
+                    coalescedCount.incrementAndGet();
+                }
+                shared.callers++;
+            }
+            if (leader) {
+                start(shared, executor);
+            }
+            final Shared<T> joined = shared;
+            // Each caller gets its own future completed on its own executor, so it can be cancelled alone
+            CompletableFuture<T> future = joined.result.thenApplyAsync(result -> result, executor);
+            future.whenComplete((r, e) -> leave(joined));
+            return future;
+        }
+
+        private void start(Shared<T> shared, Executor executor) {
+            try {
+                shared.call = provider.request(request, converter);
+                shared.future = shared.call.executeAsync(executor);
+            } catch (RuntimeException e) {
+                remove(shared);
+                shared.result.completeExceptionally(e);
+                return;
+            }
+            shared.future.whenComplete((result, exception) -> {
+                remove(shared);
+                if (exception == null) {
+                    shared.result.complete(result);
+                } else {
+                    shared.result.completeExceptionally(unwrap(exception));
+                }
+            });
+        }
+
+        // Cancels the shared call if the last caller has given up waiting for it
+        private void leave(Shared<T> shared) {
+            boolean abandoned;
+            synchronized (inFlight) {
+                abandoned = --shared.callers == 0 && !shared.result.isDone();
+                if (abandoned) {
+                    inFlight.remove(key, shared);
+                }
+            }
+            if (abandoned) {
+                shared.cancel();
+            }
+        }
+
+        private void remove(Shared<T> shared) {
+            synchronized (inFlight) {
+                inFlight.remove(key, shared);
+            }
+        }
+    }
+}
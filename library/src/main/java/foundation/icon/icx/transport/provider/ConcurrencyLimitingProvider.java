@@ -0,0 +1,422 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.MonitorSpec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The {@code ConcurrencyLimitingProvider} class limits the number of the in-flight requests to an endpoint.
+ *
+ * <p>The limit adapts to the endpoint with the AIMD algorithm. It grows by one while the requests
+ * complete within the tolerated latency and it is used well, and it shrinks multiplicatively
+ * when the latency rises above the tolerance over the minimum latency of the method observed recently,
+ * or when the endpoint fails. Each method has its own baseline, so a slow method such as {@code icx_getBlock}
+ * is not taken as the congestion next to a fast one such as {@code icx_getBalance}.
+ * The requests beyond the limit wait in a bounded queue, and they fail with
+ * {@link ConcurrencyLimitExceededException} if the queue is full or the wait times out.
+ * To limit each endpoint separately, wrap each endpoint with its own {@code ConcurrencyLimitingProvider}.
+ *
+ * <p>The latencies of {@code icx_waitTransactionResult} and {@code icx_sendTransactionAndWait} are not sampled,
+ * since they wait for the chain rather than for the endpoint, while they still take a slot.
+ */
+public class ConcurrencyLimitingProvider implements Provider, Closeable {
+
+    private static final int BASELINE_WINDOW = 500;
+
+    private final Provider provider;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final int maxQueueSize;
+    private final long maxWait;
+    private final ScheduledExecutorService scheduler;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final Map<String, Baseline> baselines = new HashMap<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private double limit;
+    private int inFlight;
+
+    private ConcurrencyLimitingProvider(Builder builder) {
+        this.provider = builder.provider;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.backoffRatio = builder.backoffRatio;
+        this.maxQueueSize = builder.maxQueueSize;
+        this.maxWait = builder.maxWait;
+        this.limit = builder.initialLimit;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "icx-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
+     */
+    @Override
+    public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        String method = request.getMethod();
+        return new LimitedRequest<>(() -> provider.request(request, converter), Methods.isWait(method) ? null : method);
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<Response>> requestBatch(List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        boolean sampled = requests.stream().noneMatch(r -> Methods.isWait(r.getMethod()));
+        return new LimitedRequest<>(() -> provider.requestBatch(requests), sampled ? "batch" : null);
+    }
+
+    /**
+     * @see Provider#monitor(MonitorSpec, RpcConverter)
+     */
+    @Override
+    public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+        return provider.monitor(spec, converter);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the current limit of the in-flight requests
+     *
+     * @return the limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of the in-flight requests
+     *
+     * @return the number of the requests
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the number of the requests waiting for a slot
+     *
+     * @return the number of the requests
+     */
+    public synchronized int getQueueSize() {
+        return waiters.size();
+    }
+
+    /**
+     * Returns the number of the requests rejected because of the limit
+     *
+     * @return the number of the requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        synchronized (this) {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                waiter.complete(null);
+                return waiter;
+            } else if (waiters.size() < maxQueueSize) {
+                waiters.add(waiter);
+            } else {
+                waiter = null;
+            }
+        }
+        if (waiter == null) {
+            rejectedCount.incrementAndGet();
+            CompletableFuture<Void> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new ConcurrencyLimitExceededException("Too many requests are waiting for " + provider));
+            return rejected;
+        }
+        final CompletableFuture<Void> queued = waiter;
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+            synchronized (ConcurrencyLimitingProvider.this) {
+                // The waiter has got a slot or has been cancelled if it is no longer queued
+                if (queued.isDone() || !waiters.remove(queued)) {
+                    return;
+                }
+            }
+            rejectedCount.incrementAndGet();
+            queued.completeExceptionally(new ConcurrencyLimitExceededException("Timed out waiting for " + provider));
+        }, maxWait, TimeUnit.NANOSECONDS);
+        queued.whenComplete((r, e) -> {
+            timeout.cancel(false);
+            if (e != null) {
+                synchronized (ConcurrencyLimitingProvider.this) {
+                    waiters.remove(queued);
+                }
+            }
+        });
+        return queued;
+    }
+
+    // Releases the slot, and samples the latency against the baseline of the method unless it is null
+    private void release(long latency, Throwable exception, String method) {
+        List<CompletableFuture<Void>> ready = new ArrayList<>();
+        synchronized (this) {
+            if (method != null) {
+                update(method, latency, exception != null && AbstractRequest.isEndpointFailure(exception));
+            }
+            inFlight--;
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                ready.add(waiters.poll());
+                inFlight++;
+            }
+        }
+        // The waiters may have timed out meanwhile, then their slots are passed on
+        for (CompletableFuture<Void> waiter : ready) {
+            if (!waiter.complete(null)) {
+                release(0, null, null);
+            }
+        }
+    }
+
+    // Called with the lock held
+    private void update(String method, long latency, boolean dropped) {
+        long minLatency = baselines.computeIfAbsent(method, m -> new Baseline()).add(latency);
+        if (dropped || latency > minLatency * latencyTolerance) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    // The minimum latency of a method observed recently; accessed with the lock held
+    private static class Baseline {
+        private long minLatency;
+        private long windowMinLatency = Long.MAX_VALUE;
+        private int windowSamples;
+
+        // Adds the sample, and returns the minimum latency
+        long add(long latency) {
+            windowMinLatency = Math.min(windowMinLatency, latency);
+            if (minLatency == 0 || latency < minLatency) {
+                minLatency = latency;
+            }
+            if (++windowSamples >= BASELINE_WINDOW) {
+                // Renews the baseline so that it follows the lasting changes of the endpoint
+                minLatency = windowMinLatency;
+                windowMinLatency = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            return minLatency;
+        }
+    }
+
+    // The wait-style methods are not sampled, since their latency is that of the chain
+    private class LimitedRequest<T> extends AbstractRequest<T> {
+        private final Supplier<Request<T>> factory;
+        // The method of the baseline, or null if the latency is not sampled
+        private final String method;
+
+        LimitedRequest(Supplier<Request<T>> factory, String method) {
+            this.factory = factory;
+            this.method = method;
+        }
+
+        @Override
+        T doExecute() throws IOException {
+            CompletableFuture<Void> permit = acquire();
+            try {
+                await(permit);
+            } catch (IOException | RuntimeException e) {
+                // The slot may have been granted just before the wait was interrupted or timed out
+                if (permit.isDone() && !permit.isCompletedExceptionally()) {
+                    release(0, null, null);
+                }
+                throw e;
+            }
+            long start = System.nanoTime();
+            try {
+                T result = track(factory.get()).execute();
+                release(System.nanoTime() - start, null, method);
+                return result;
+            } catch (IOException | RuntimeException e) {
+                release(System.nanoTime() - start, e, method);
+                throw e;
+            }
+        }
+
+        @Override
+        CompletableFuture<T> doExecuteAsync(Executor executor) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            CompletableFuture<Void> permit = acquire();
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    permit.cancel(true);
+                }
+            });
+            permit.whenComplete((v, exception) -> {
+                if (exception != null) {
+                    result.completeExceptionally(unwrap(exception));
+                    return;
+                }
+                if (result.isDone()) {
+                    release(0, null, null);
+                    return;
+                }
+                long start = System.nanoTime();
+                CompletableFuture<T> future;
+                try {
+                    future = track(factory.get()).executeAsync(executor);
+                } catch (RuntimeException e) {
+                    release(System.nanoTime() - start, e, method);
+                    result.completeExceptionally(e);
+                    return;
+                }
+                result.whenComplete((r, e) -> {
+                    if (result.isCancelled()) {
+                        future.cancel(true);
+                    }
+                });
+                future.whenComplete((value, e) -> {
+                    release(System.nanoTime() - start, e, future.isCancelled() ? null : method);
+                    if (e == null) {
+                        result.complete(value);
+                    } else {
+                        result.completeExceptionally(unwrap(e));
+                    }
+                });
+            });
+            return result;
+        }
+    }
+
+    /**
+     * Builder for ConcurrencyLimitingProvider
+     */
+    public static class Builder {
+        private final Provider provider;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private double latencyTolerance = 2.0;
+        private double backoffRatio = 0.9;
+        private int maxQueueSize = 1000;
+        private long maxWait = TimeUnit.SECONDS.toNanos(5);
+
+        /**
+         * Creates a builder
+         *
+         * @param provider the provider of the endpoint
+         */
+        public Builder(Provider provider) {
+            this.provider = provider;
+        }
+
+        /**
+         * Sets the initial limit and the range of the limit
+         *
+         * @param initial the initial limit
+         * @param min the lower bound of the limit
+         * @param max the upper bound of the limit
+         * @return this builder
+         */
+        public Builder limit(int initial, int min, int max) {
+            if (min < 1 || initial < min || max < initial) {
+                throw new IllegalArgumentException("The limits should be 1 <= min <= initial <= max");
+            }
+            this.initialLimit = initial;
+            this.minLimit = min;
+            this.maxLimit = max;
+            return this;
+        }
+
+        /**
+         * Sets the ratio to the minimum latency above which the endpoint is considered as overloaded
+         *
+         * @param latencyTolerance the ratio greater than 1
+         * @return this builder
+         */
+        public Builder latencyTolerance(double latencyTolerance) {
+            if (latencyTolerance <= 1) {
+                throw new IllegalArgumentException("latencyTolerance should be greater than 1");
+            }
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * Sets the ratio by which the limit is multiplied when the endpoint is overloaded
+         *
+         * @param backoffRatio the ratio between 0 and 1
+         * @return this builder
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio should be in (0, 1)");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Sets the number of the requests which may wait for a slot, and how long they may wait
+         *
+         * @param maxQueueSize the number of the requests
+         * @param maxWait the maximum wait
+         * @param unit the time unit of the wait
+         * @return this builder
+         */
+        public Builder queue(int maxQueueSize, long maxWait, TimeUnit unit) {
+            if (maxQueueSize < 0) {
+                throw new IllegalArgumentException("maxQueueSize should not be negative");
+            }
+            this.maxQueueSize = maxQueueSize;
+            this.maxWait = unit.toNanos(maxWait);
+            return this;
+        }
+
+        public ConcurrencyLimitingProvider build() {
+            return new ConcurrencyLimitingProvider(this);
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.MonitorSpec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The {@code HedgingProvider} class reduces the tail latency of the read requests by hedging.
+ *
+ * <p>A read request ({@code icx_get*} and {@code icx_call}) is sent to one endpoint first.
+ * If it has not been answered within the hedge delay, a duplicate is sent to the next endpoint.
+ * The first successful response wins and the other attempts are cancelled.
+ * The hedge delay follows the given percentile of the recent latencies, so only the slowest requests are hedged.
+ * The latency of a request is measured from its first attempt, whichever attempt wins.
+ * A request is hedged only to the other endpoints, so nothing is hedged with a single endpoint.
+ * The other requests, such as {@code icx_sendTransaction}, are never hedged.
+ */
+public class HedgingProvider implements Provider, Closeable {
+
+    private final List<Provider> endpoints;
+    private final int maxHedges;
+    private final LatencyWindow latencies;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger nextEndpoint = new AtomicInteger();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    private HedgingProvider(Builder builder) {
+        this.endpoints = new ArrayList<>(builder.providers);
+        this.maxHedges = Math.min(builder.maxHedges, endpoints.size() - 1);
+        this.latencies = new LatencyWindow(builder.windowSize, builder.percentile,
+                builder.initialDelay, builder.minDelay);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "icx-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
+     */
+    @Override
+    public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        if (!Methods.isIdempotentRead(request.getMethod())) {
+            return nextProvider().request(request, converter);
+        }
+        return new HedgedRequest<>(provider -> provider.request(request, converter));
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<Response>> requestBatch(List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        for (foundation.icon.icx.transport.jsonrpc.Request request : requests) {
+            if (!Methods.isIdempotentRead(request.getMethod())) {
+                return nextProvider().requestBatch(requests);
+            }
+        }
+        return new HedgedRequest<>(provider -> provider.requestBatch(requests));
+    }
+
+    /**
+     * @see Provider#monitor(MonitorSpec, RpcConverter)
+     */
+    @Override
+    public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+        return nextProvider().monitor(spec, converter);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the number of the requests which could be hedged
+     *
+     * @return the number of the read requests
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of the hedges sent
+     *
+     * @return the number of the duplicated requests
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * Returns the number of the requests answered by a hedge
+     *
+     * @return the number of the requests won by a hedge
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    /**
+     * Returns the ratio of the hedges sent to the read requests
+     *
+     * @return the hedge rate between 0 and {@code maxHedges}
+     */
+    public double getHedgeRate() {
+        long requests = requestCount.get();
+        return requests == 0 ? 0 : (double) hedgeCount.get() / requests;
+    }
+
+    /**
+     * Returns the current hedge delay
+     *
+     * @return the delay in milliseconds
+     */
+    public long getHedgeDelay() {
+        return TimeUnit.NANOSECONDS.toMillis(latencies.getDelay());
+    }
+
+    private int nextIndex() {
+        return (nextEndpoint.getAndIncrement() & Integer.MAX_VALUE) % endpoints.size();
+    }
+
+    private Provider nextProvider() {
+        return endpoints.get(nextIndex());
+    }
+
+    private class HedgedRequest<T> extends AbstractRequest<T> {
+        private final Function<Provider, Request<T>> factory;
+
+        HedgedRequest(Function<Provider, Request<T>> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        T doExecute() throws IOException {
+            return await(executeAsync(Runnable::run));
+        }
+
+        @Override
+        CompletableFuture<T> doExecuteAsync(Executor executor) {
+            requestCount.incrementAndGet();
+            return new Attempts<T>(provider -> track(factory.apply(provider)), executor, nextIndex()).start();
+        }
+    }
+
+    // Tracks the attempts of a hedged request
+    private class Attempts<T> {
+        private final Function<Provider, Request<T>> factory;
+        private final Executor executor;
+        private final int first;
+        private final long started = System.nanoTime();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<CompletableFuture<T>> attempts = new ArrayList<>();
+        private int failed;
+        private ScheduledFuture<?> timer;
+
+        Attempts(Function<Provider, Request<T>> factory, Executor executor, int first) {
+            this.factory = factory;
+            this.executor = executor;
+            this.first = first;
+        }
+
+        CompletableFuture<T> start() {
+            result.whenComplete((r, e) -> cancelAll());
+            startAttempt();
+            return result;
+        }
+
+        private void startAttempt() {
+            final int index;
+            synchronized (this) {
+                if (result.isDone() || attempts.size() > maxHedges) {
+                    return;
+                }
+                index = attempts.size();
+                attempts.add(null);
+            }
+            if (index > 0) {
+                hedgeCount.incrementAndGet();
+            }
+            CompletableFuture<T> attempt;
+            try {
+                Provider provider = endpoints.get((first + index) % endpoints.size());
+                attempt = factory.apply(provider).executeAsync(executor);
+            } catch (RuntimeException e) {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(e);
+            }
+            synchronized (this) {
+                attempts.set(index, attempt);
+                if (result.isDone()) {
+                    attempt.cancel(true);
+                    return;
+                }
+                if (index < maxHedges) {
+                    timer = scheduler.schedule(this::startAttempt, latencies.getDelay(), TimeUnit.NANOSECONDS);
+                }
+            }
+            attempt.whenComplete((value, exception) -> {
+                if (exception == null) {
+                    // The latency of the request, so the slow attempts which lose to a hedge are reflected
+                    long latency = System.nanoTime() - started;
+                    // counts the win before the caller is released
+                    if (index > 0) {
+                        hedgeWinCount.incrementAndGet();
+                    }
+                    if (result.complete(value)) {
+                        latencies.add(latency);
+                    } else if (index > 0) {
+                        hedgeWinCount.decrementAndGet();
+                    }
+                } else {
+                    onFailure(exception);
+                }
+            });
+        }
+
+        private void onFailure(Throwable exception) {
+            if (!AbstractRequest.isEndpointFailure(exception) && !result.isDone()) {
+                // the request itself is wrong, so the other attempts would fail as well
+                result.completeExceptionally(AbstractRequest.unwrap(exception));
+                return;
+            }
+            boolean retry;
+            synchronized (this) {
+                failed++;
+                if (failed < attempts.size()) {
+                    // the other attempts are still running
+                    return;
+                }
+                retry = attempts.size() <= maxHedges;
+                if (retry && timer != null) {
+                    timer.cancel(false);
+                }
+            }
+            if (retry) {
+                // hedges right away instead of waiting for the delay
+                startAttempt();
+            } else {
+                result.completeExceptionally(AbstractRequest.unwrap(exception));
+            }
+        }
+
+        private void cancelAll() {
+            List<CompletableFuture<T>> pending;
+            synchronized (this) {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                pending = new ArrayList<>(attempts);
+            }
+            for (CompletableFuture<T> attempt : pending) {
+                if (attempt != null && !attempt.isDone()) {
+                    attempt.cancel(true);
+                }
+            }
+        }
+    }
+
+    // Keeps the recent latencies to derive the hedge delay
+    private static class LatencyWindow {
+        private static final int RECOMPUTE_INTERVAL = 64;
+
+        private final long[] samples;
+        private final double percentile;
+        private final long minDelay;
+        private int count;
+        private int next;
+        private long added;
+        private volatile long delay;
+
+        LatencyWindow(int size, double percentile, long initialDelay, long minDelay) {
+            this.samples = new long[size];
+            this.percentile = percentile;
+            this.minDelay = minDelay;
+            this.delay = Math.max(initialDelay, minDelay);
+        }
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+            if (++added % RECOMPUTE_INTERVAL == 0 || count == samples.length && added == count) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile / 100 * count) - 1;
+                delay = Math.max(sorted[Math.max(0, Math.min(index, count - 1))], minDelay);
+            }
+        }
+
+        long getDelay() {
+            return delay;
+        }
+    }
+
+    /**
+     * Builder for HedgingProvider
+     */
+    public static class Builder {
+        private final List<Provider> providers = new ArrayList<>();
+        private double percentile = 95;
+        private long initialDelay = TimeUnit.MILLISECONDS.toNanos(100);
+        private long minDelay = TimeUnit.MILLISECONDS.toNanos(5);
+        private int maxHedges = 1;
+        private int windowSize = 1024;
+
+        /**
+         * Adds an endpoint, the hedges are sent to the next endpoint in the order of addition
+         *
+         * @param provider the provider of the endpoint
+         * @return this builder
+         */
+        public Builder endpoint(Provider provider) {
+            providers.add(provider);
+            return this;
+        }
+
+        /**
+         * Sets the percentile of the latency used as the hedge delay
+         *
+         * @param percentile the percentile between 0 and 100, ex) 95 for p95
+         * @return this builder
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile should be in (0, 100]");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets the hedge delay used until enough latencies are observed
+         *
+         * @param delay the delay
+         * @param unit the time unit of the delay
+         * @return this builder
+         */
+        public Builder initialDelay(long delay, TimeUnit unit) {
+            this.initialDelay = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Sets the lower bound of the hedge delay
+         *
+         * @param delay the delay
+         * @param unit the time unit of the delay
+         * @return this builder
+         */
+        public Builder minDelay(long delay, TimeUnit unit) {
+            this.minDelay = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of the hedges for a request.
+         * It is limited to the number of the endpoints other than the first one of the request.
+         *
+         * @param maxHedges the number of the hedges
+         * @return this builder
+         */
+        public Builder maxHedges(int maxHedges) {
+            if (maxHedges < 1) {
+                throw new IllegalArgumentException("maxHedges should be positive");
+            }
+            this.maxHedges = maxHedges;
+            return this;
+        }
+
+        /**
+         * Sets the number of the recent latencies to derive the hedge delay
+         *
+         * @param windowSize the number of the latencies
+         * @return this builder
+         */
+        public Builder windowSize(int windowSize) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("windowSize should be positive");
+            }
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        public HedgingProvider build() {
+            if (providers.isEmpty()) {
+                throw new IllegalArgumentException("No endpoint");
+            }
+            return new HedgingProvider(this);
+        }
+    }
+}
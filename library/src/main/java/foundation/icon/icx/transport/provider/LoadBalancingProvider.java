@@ -0,0 +1,649 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.data.Block;
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.MonitorSpec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The {@code LoadBalancingProvider} class distributes the requests over several endpoints.
+ *
+ * <p>Each request goes to the endpoint with the lowest expected latency, which is the moving average
+ * of its latency weighted by the number of its outstanding requests.
+ * An endpoint is ejected after consecutive failures, and the endpoints are probed periodically with
+ * {@code icx_getLastBlock} to bring them back and to route away from the ones lagging behind the others.
+ * If no endpoint is available, the requests are distributed over all the endpoints.
+ *
+ * <p>The requests for a transaction, like {@code icx_getTransactionResult} and {@code icx_waitTransactionResult},
+ * go to the endpoint which accepted the transaction until the result is found in a block,
+ * because the other endpoints may not have seen the transaction yet.
+ * The requests of a {@link #session()} stick to one endpoint as well.
+ */
+public class LoadBalancingProvider implements Provider, Closeable {
+
+    private static final Set<String> SEND_METHODS = new HashSet<>(Arrays.asList(
+            "icx_sendTransaction",
+            "icx_sendTransactionAndWait"));
+
+    private static final Set<String> TX_METHODS = new HashSet<>(Arrays.asList(
+            "icx_getTransactionResult",
+            "icx_waitTransactionResult",
+            "icx_getTransactionByHash",
+            "icx_getProofForResult"));
+
+    private final List<Endpoint> endpoints;
+    private final int failureThreshold;
+    private final long maxHeightLag;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong probeId = new AtomicLong();
+    private final long probeTimeout;
+    private final long affinityTtl;
+    private final Map<String, Affinity> affinities;
+
+    private LoadBalancingProvider(Builder builder) {
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (Provider provider : builder.providers) {
+            endpoints.add(new Endpoint(provider, builder.decay));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.failureThreshold = builder.failureThreshold;
+        this.maxHeightLag = builder.maxHeightLag;
+        this.probeTimeout = builder.probeInterval > 0 ? builder.probeInterval : 5000;
+        this.affinityTtl = builder.affinityTtl;
+        final int maxAffinities = builder.maxAffinities;
+        this.affinities = new LinkedHashMap<String, Affinity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Affinity> eldest) {
+                return size() > maxAffinities;
+            }
+        };
+        if (builder.probeInterval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "icx-lb-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::probe, 0, builder.probeInterval, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Returns the endpoints of this provider
+     *
+     * @return the list of the endpoints
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
+     */
+    @Override
+    public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        return request(request, converter, null);
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<Response>> requestBatch(List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        return new BalancedRequest<>(endpoint -> endpoint.provider.requestBatch(requests), null, null);
+    }
+
+    /**
+     * @see Provider#monitor(MonitorSpec, RpcConverter)
+     */
+    @Override
+    public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+        return select().provider.monitor(spec, converter);
+    }
+
+    /**
+     * Returns a provider whose requests stick to one endpoint, so that they read their own writes.
+     * The endpoint is selected by the first request, and another one is selected only when it fails.
+     *
+     * @return the provider of the session
+     */
+    public Provider session() {
+        Session session = new Session();
+        return new Provider() {
+            @Override
+            public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request,
+                                          RpcConverter<T> converter) {
+                return LoadBalancingProvider.this.request(request, converter, session);
+            }
+
+            @Override
+            public Request<List<Response>> requestBatch(List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+                return new BalancedRequest<>(endpoint -> endpoint.provider.requestBatch(requests), null, session);
+            }
+
+            @Override
+            public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+                return select(null, session).provider.monitor(spec, converter);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of the transactions bound to the endpoints which accepted them
+     *
+     * @return the number of the transactions
+     */
+    public int getAffinityCount() {
+        synchronized (affinities) {
+            return affinities.size();
+        }
+    }
+
+    private <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter,
+                                   Session session) {
+        String method = request.getMethod();
+        if (affinityTtl > 0 && SEND_METHODS.contains(method)) {
+            // Binds the hash of the accepted transaction to the endpoint
+            return new BalancedRequest<>(endpoint -> endpoint.provider.request(request,
+                    intercept(converter, result -> bind(getTxHash(result), endpoint))), null, session);
+        }
+        String txHash = affinityTtl > 0 && TX_METHODS.contains(method) ? getTxHash(request.getParams()) : null;
+        if (txHash != null) {
+            // Releases the transaction once it is found in a block, which every endpoint has
+            return new BalancedRequest<>(endpoint -> endpoint.provider.request(request,
+                    intercept(converter, result -> {
+                        if (result instanceof RpcObject && ((RpcObject) result).getItem("blockHeight") != null) {
+                            unbind(txHash);
+                        }
+                    })), txHash, session);
+        }
+        return new BalancedRequest<>(endpoint -> endpoint.provider.request(request, converter), null, session);
+    }
+
+    private static <T> RpcConverter<T> intercept(RpcConverter<T> converter, Consumer<RpcItem> consumer) {
+        return new RpcConverter<T>() {
+            @Override
+            public T convertTo(RpcItem object) {
+                consumer.accept(object);
+                return converter.convertTo(object);
+            }
+
+            @Override
+            public RpcItem convertFrom(T object) {
+                return converter.convertFrom(object);
+            }
+        };
+    }
+
+    // The hash is the result of icx_sendTransaction, or in the result of icx_sendTransactionAndWait
+    private static String getTxHash(RpcItem item) {
+        if (item instanceof RpcObject) {
+            item = ((RpcObject) item).getItem("txHash");
+        }
+        return item instanceof RpcValue ? item.asString().toLowerCase() : null;
+    }
+
+    private void bind(String txHash, Endpoint endpoint) {
+        if (txHash != null) {
+            synchronized (affinities) {
+                affinities.put(txHash, new Affinity(endpoint, System.nanoTime() + affinityTtl));
+            }
+        }
+    }
+
+    private void unbind(String txHash) {
+        synchronized (affinities) {
+            affinities.remove(txHash);
+        }
+    }
+
+    private Endpoint getAffinity(String txHash) {
+        synchronized (affinities) {
+            Affinity affinity = affinities.get(txHash);
+            if (affinity == null) {
+                return null;
+            }
+            if (System.nanoTime() - affinity.expiry > 0) {
+                affinities.remove(txHash);
+                return null;
+            }
+            return affinity.endpoint;
+        }
+    }
+
+    /**
+     * Selects the endpoint bound to the transaction or the session while it is healthy,
+     * or the one with the lowest expected latency
+     */
+    Endpoint select(String txHash, Session session) {
+        if (txHash != null) {
+            Endpoint endpoint = getAffinity(txHash);
+            if (endpoint != null && endpoint.isHealthy()) {
+                return endpoint;
+            }
+        }
+        if (session != null) {
+            synchronized (session) {
+                if (session.endpoint == null || !session.endpoint.isHealthy()) {
+                    session.endpoint = select();
+                }
+                return session.endpoint;
+            }
+        }
+        return select();
+    }
+
+    /**
+     * Stops probing the endpoints
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Selects the endpoint with the lowest expected latency among the available ones
+     */
+    Endpoint select() {
+        Endpoint best = select(true);
+        return best != null ? best : select(false);
+    }
+
+    private Endpoint select(boolean availableOnly) {
+        Endpoint best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (Endpoint endpoint : endpoints) {
+            if (availableOnly && !endpoint.isAvailable()) {
+                continue;
+            }
+            double cost = endpoint.getCost();
+            if (cost < bestCost) {
+                best = endpoint;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    private static final class Affinity {
+        private final Endpoint endpoint;
+        private final long expiry;
+
+        Affinity(Endpoint endpoint, long expiry) {
+            this.endpoint = endpoint;
+            this.expiry = expiry;
+        }
+    }
+
+    private static final class Session {
+        private Endpoint endpoint;
+    }
+
+    // Each probe is bounded by the probe interval, so a hung endpoint does not stall the next probes
+    void probe() {
+        List<CompletableFuture<Void>> probes = new ArrayList<>();
+        List<Endpoint> probed = new ArrayList<>();
+        List<AtomicBoolean> reported = new ArrayList<>();
+        for (final Endpoint endpoint : endpoints) {
+            final long start = System.nanoTime();
+            final AtomicBoolean done = new AtomicBoolean();
+            foundation.icon.icx.transport.jsonrpc.Request request = new foundation.icon.icx.transport.jsonrpc.Request(
+                    probeId.incrementAndGet(), "icx_getLastBlock", null);
+            CompletableFuture<Void> future;
+            try {
+                Request<Block> call = endpoint.provider.request(request, Converters.BLOCK);
+                try {
+                    call.timeout(probeTimeout, TimeUnit.MILLISECONDS);
+                } catch (UnsupportedOperationException ignored) {
+                    // The probe is still bounded by the wait below
+                }
+                future = call.executeAsync()
+                        .handle((block, exception) -> {
+                            if (done.compareAndSet(false, true)) {
+                                if (exception == null) {
+                                    endpoint.onProbeSuccess(System.nanoTime() - start, block);
+                                } else {
+                                    endpoint.onProbeFailure();
+                                }
+                            }
+                            return null;
+                        });
+            } catch (RuntimeException e) {
+                endpoint.onProbeFailure();
+                continue;
+            }
+            probes.add(future);
+            probed.add(endpoint);
+            reported.add(done);
+        }
+        try {
+            CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[0])).get(probeTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            for (int i = 0; i < probes.size(); i++) {
+                if (reported.get(i).compareAndSet(false, true)) {
+                    probed.get(i).onProbeFailure();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            return;
+        }
+        BigInteger maxHeight = null;
+        for (Endpoint endpoint : endpoints) {
+            BigInteger height = endpoint.height;
+            if (endpoint.healthy && height != null && (maxHeight == null || height.compareTo(maxHeight) > 0)) {
+                maxHeight = height;
+            }
+        }
+        for (Endpoint endpoint : endpoints) {
+            BigInteger height = endpoint.height;
+            endpoint.lagging = maxHeight != null && height != null
+                    && maxHeight.subtract(height).longValue() > maxHeightLag;
+        }
+    }
+
+    /**
+     * An endpoint of the load balancer and its statistics
+     */
+    public final class Endpoint {
+        private final Provider provider;
+        private final double decay;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private double latency;
+        private volatile boolean healthy = true;
+        private volatile boolean lagging;
+        private volatile BigInteger height;
+
+        private Endpoint(Provider provider, double decay) {
+            this.provider = provider;
+            this.decay = decay;
+        }
+
+        public Provider getProvider() {
+            return provider;
+        }
+
+        /**
+         * Returns the moving average of the latency
+         *
+         * @return the latency in milliseconds
+         */
+        public synchronized double getLatency() {
+            return latency / 1_000_000.0;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Returns the last block height observed by the probe
+         *
+         * @return the height or null if it has not been observed yet
+         */
+        public BigInteger getHeight() {
+            return height;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public boolean isLagging() {
+            return lagging;
+        }
+
+        boolean isAvailable() {
+            return healthy && !lagging;
+        }
+
+        synchronized double getCost() {
+            return (latency + 1) * (outstanding.get() + 1);
+        }
+
+        private synchronized void updateLatency(long nanos) {
+            latency = latency == 0 ? nanos : latency * decay + nanos * (1 - decay);
+        }
+
+        void onStart() {
+            outstanding.incrementAndGet();
+        }
+
+        void onComplete(long nanos, Throwable exception) {
+            outstanding.decrementAndGet();
+            if (exception != null && AbstractRequest.isEndpointFailure(exception)) {
+                if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                    healthy = false;
+                }
+            } else {
+                consecutiveFailures.set(0);
+                updateLatency(nanos);
+            }
+        }
+
+        private void onProbeSuccess(long nanos, Block block) {
+            updateLatency(nanos);
+            height = block.getHeight();
+            consecutiveFailures.set(0);
+            healthy = true;
+        }
+
+        private void onProbeFailure() {
+            healthy = false;
+        }
+
+        @Override
+        public String toString() {
+            return "Endpoint(" + provider + ")";
+        }
+    }
+
+    private class BalancedRequest<T> extends AbstractRequest<T> {
+        private final Function<Endpoint, Request<T>> factory;
+        private final String txHash;
+        private final Session session;
+
+        BalancedRequest(Function<Endpoint, Request<T>> factory, String txHash, Session session) {
+            this.factory = factory;
+            this.txHash = txHash;
+            this.session = session;
+        }
+
+        @Override
+        T doExecute() throws IOException {
+            Endpoint endpoint = select(txHash, session);
+            long start = System.nanoTime();
+            endpoint.onStart();
+            try {
+                T result = track(factory.apply(endpoint)).execute();
+                endpoint.onComplete(System.nanoTime() - start, null);
+                return result;
+            } catch (IOException | RuntimeException e) {
+                endpoint.onComplete(System.nanoTime() - start, e);
+                throw e;
+            }
+        }
+
+        @Override
+        CompletableFuture<T> doExecuteAsync(Executor executor) {
+            final Endpoint endpoint = select(txHash, session);
+            final long start = System.nanoTime();
+            endpoint.onStart();
+            CompletableFuture<T> future;
+            try {
+                future = track(factory.apply(endpoint)).executeAsync(executor);
+            } catch (RuntimeException e) {
+                endpoint.onComplete(System.nanoTime() - start, e);
+                throw e;
+            }
+            future.whenComplete((result, exception) -> {
+                endpoint.onComplete(System.nanoTime() - start, future.isCancelled() ? null : exception);
+            });
+            return future;
+        }
+    }
+
+    /**
+     * Builder for LoadBalancingProvider
+     */
+    public static class Builder {
+        private final List<Provider> providers = new ArrayList<>();
+        private long probeInterval = 5000;
+        private int failureThreshold = 3;
+        private long maxHeightLag = 5;
+        private double decay = 0.8;
+        private long affinityTtl = TimeUnit.MINUTES.toNanos(5);
+        private int maxAffinities = 10_000;
+
+        /**
+         * Adds an endpoint
+         *
+         * @param provider the provider of the endpoint, ex) {@code HttpProvider}
+         * @return this builder
+         */
+        public Builder endpoint(Provider provider) {
+            providers.add(provider);
+            return this;
+        }
+
+        /**
+         * Sets the interval of probing the endpoints, 0 disables the probe.
+         * A probe which does not complete within the interval counts as a failure.
+         *
+         * @param interval the interval
+         * @param unit the time unit of the interval
+         * @return this builder
+         */
+        public Builder probeInterval(long interval, TimeUnit unit) {
+            this.probeInterval = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets the number of consecutive failures after which an endpoint is ejected
+         *
+         * @param failureThreshold the number of failures
+         * @return this builder
+         */
+        public Builder failureThreshold(int failureThreshold) {
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException("failureThreshold should be positive");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the number of blocks an endpoint may lag behind the highest one before it is avoided
+         *
+         * @param maxHeightLag the number of blocks
+         * @return this builder
+         */
+        public Builder maxHeightLag(long maxHeightLag) {
+            this.maxHeightLag = maxHeightLag;
+            return this;
+        }
+
+        /**
+         * Sets the weight of the previous average when the latency is updated
+         *
+         * @param decay the weight between 0 and 1
+         * @return this builder
+         */
+        public Builder decay(double decay) {
+            if (decay < 0 || decay >= 1) {
+                throw new IllegalArgumentException("decay should be in [0, 1)");
+            }
+            this.decay = decay;
+            return this;
+        }
+
+        /**
+         * Sets how long a transaction is bound to the endpoint which accepted it, at most.
+         * It is released earlier when its result is found in a block.
+         *
+         * @param ttl the duration, 0 disables the affinity
+         * @param unit the time unit of the duration
+         * @return this builder
+         */
+        public Builder affinityTtl(long ttl, TimeUnit unit) {
+            this.affinityTtl = unit.toNanos(ttl);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of the transactions bound to the endpoints.
+         * The least recently used ones are released beyond it.
+         *
+         * @param maxAffinities the number of the transactions
+         * @return this builder
+         */
+        public Builder maxAffinities(int maxAffinities) {
+            if (maxAffinities < 1) {
+                throw new IllegalArgumentException("maxAffinities should be positive");
+            }
+            this.maxAffinities = maxAffinities;
+            return this;
+        }
+
+        public LoadBalancingProvider build() {
+            if (providers.isEmpty()) {
+                throw new IllegalArgumentException("No endpoint");
+            }
+            return new LoadBalancingProvider(this);
+        }
+    }
+}
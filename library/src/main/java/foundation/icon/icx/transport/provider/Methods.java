@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+/**
+ * Classifies the jsonrpc methods by their side effects
+ */
+final class Methods {
+
+    private Methods() {
+    }
+
+    /**
+     * Returns whether the method only reads the state and returns immediately,
+     * so it can be sent more than once without any effect on the chain.
+     * The {@code icx_get*} family and {@code icx_call} are read-only, while the wait-style methods
+     * hold the connection until the result is available.
+     */
+    static boolean isIdempotentRead(String method) {
+        return method.startsWith("icx_get") || "icx_call".equals(method);
+    }
+
+    /**
+     * Returns whether the method holds the connection until the transaction result is available,
+     * so its latency depends on the chain rather than on the load of the endpoint
+     */
+    static boolean isWait(String method) {
+        return "icx_waitTransactionResult".equals(method) || "icx_sendTransactionAndWait".equals(method);
+    }
+
+    /**
+     * Returns whether sending the request again has no additional effect on its answer.
+     * The transactions are not, even the signed ones: if the first attempt has reached the node,
+     * the node rejects the second one as a duplicate and the caller would get an error
+     * for the transaction which has been accepted.
+     */
+    static boolean isIdempotent(foundation.icon.icx.transport.jsonrpc.Request request) {
+        String method = request.getMethod();
+        return isIdempotentRead(method) || "icx_waitTransactionResult".equals(method)
+                || "debug_estimateStep".equals(method);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.transport.jsonrpc.RpcArray;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+
+import java.util.TreeSet;
+
+/**
+ * Makes the keys identifying the same requests, for caching and coalescing them
+ */
+final class RequestKeys {
+
+    private RequestKeys() {
+    }
+
+    /**
+     * Returns the key of the request, which does not depend on the id of the request
+     * or the order of the parameters
+     */
+    static String of(foundation.icon.icx.transport.jsonrpc.Request request) {
+        StringBuilder builder = new StringBuilder(request.getMethod());
+        if (request.getParams() != null) {
+            appendItem(builder.append(':'), request.getParams());
+        }
+        return builder.toString();
+    }
+
+    // Quotes every key and value and escapes the quotes in them, so that different parameters never make the same key
+    private static void appendItem(StringBuilder builder, RpcItem item) {
+        if (item instanceof RpcObject) {
+            RpcObject object = (RpcObject) item;
+            builder.append('{');
+            for (String key : new TreeSet<>(object.keySet())) {
+                appendString(builder, key).append(':');
+                appendItem(builder, object.getItem(key));
+                builder.append(',');
+            }
+            builder.append('}');
+        } else if (item instanceof RpcArray) {
+            builder.append('[');
+            for (RpcItem element : (RpcArray) item) {
+                appendItem(builder, element);
+                builder.append(',');
+            }
+            builder.append(']');
+        } else if (item instanceof RpcValue && !item.isNull()) {
+            appendString(builder, ((RpcValue) item).asString());
+        } else {
+            builder.append("null");
+        }
+    }
+
+    private static StringBuilder appendString(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.append('"');
+    }
+}
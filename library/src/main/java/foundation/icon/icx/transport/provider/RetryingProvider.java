@@ -0,0 +1,444 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.transport.jsonrpc.Response;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.MonitorSpec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The {@code RetryingProvider} class retries the failed requests of an endpoint and
+ * protects the endpoint with a circuit breaker.
+ *
+ * <p>A request is retried with a jittered exponential backoff when it fails because of the network
+ * or a 5xx response, as long as the retry budget allows it. The budget caps the retries to a share of
+ * the requests, so the retries do not multiply the load during an outage.
+ * Only the idempotent requests are retried, which are the reads. The transactions are never retried,
+ * because the node answers a duplicate of an accepted transaction with an error.
+ *
+ * <p>The circuit breaker opens after consecutive failures and rejects the requests with
+ * {@link CircuitBreakerOpenException} until a trial request succeeds after the open duration.
+ * To have a circuit breaker per endpoint, wrap each endpoint with its own {@code RetryingProvider}.
+ */
+public class RetryingProvider implements Provider, Closeable {
+
+    /**
+     * The state of the circuit breaker
+     */
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final Provider provider;
+    private final int maxAttempts;
+    private final long baseBackoff;
+    private final long maxBackoff;
+    private final RetryBudget budget;
+    private final CircuitBreaker breaker;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong retryCount = new AtomicLong();
+
+    private RetryingProvider(Builder builder) {
+        this.provider = builder.provider;
+        this.maxAttempts = builder.maxAttempts;
+        this.baseBackoff = builder.baseBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.budget = new RetryBudget(builder.budgetRatio, builder.budgetCapacity);
+        this.breaker = new CircuitBreaker(builder.failureThreshold, builder.openDuration);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "icx-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @see Provider#request(foundation.icon.icx.transport.jsonrpc.Request, RpcConverter)
+     */
+    @Override
+    public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        return new RetryingRequest<>(Methods.isIdempotent(request), () -> provider.request(request, converter));
+    }
+
+    /**
+     * @see Provider#requestBatch(List)
+     */
+    @Override
+    public Request<List<Response>> requestBatch(List<foundation.icon.icx.transport.jsonrpc.Request> requests) {
+        boolean idempotent = true;
+        for (foundation.icon.icx.transport.jsonrpc.Request request : requests) {
+            idempotent &= Methods.isIdempotent(request);
+        }
+        return new RetryingRequest<>(idempotent, () -> provider.requestBatch(requests));
+    }
+
+    /**
+     * @see Provider#monitor(MonitorSpec, RpcConverter)
+     */
+    @Override
+    public <T> Monitor<T> monitor(MonitorSpec spec, RpcConverter<T> converter) {
+        return provider.monitor(spec, converter);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the number of the retries sent
+     *
+     * @return the number of the retries
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Returns the current state of the circuit breaker
+     *
+     * @return the state
+     */
+    public CircuitState getCircuitState() {
+        return breaker.getState();
+    }
+
+    private static boolean isRetryable(Throwable exception) {
+        Throwable cause = AbstractRequest.unwrap(exception);
+        if (cause instanceof CircuitBreakerOpenException) {
+            return false;
+        } else if (cause instanceof RpcError) {
+            // The jsonrpc errors are replied by the node, the others have the HTTP status code
+            long code = ((RpcError) cause).getCode();
+            return code >= 500 || code == 429;
+        }
+        return cause instanceof IOException;
+    }
+
+    private boolean shouldRetry(boolean idempotent, int attempt, Throwable exception) {
+        if (!idempotent || attempt >= maxAttempts || !isRetryable(exception) || !budget.tryRetry()) {
+            return false;
+        }
+        retryCount.incrementAndGet();
+        return true;
+    }
+
+    private void onResult(Throwable exception) {
+        if (exception == null || !isRetryable(exception)) {
+            breaker.onSuccess();
+        } else if (!(AbstractRequest.unwrap(exception) instanceof CircuitBreakerOpenException)) {
+            breaker.onFailure();
+        }
+    }
+
+    // Full jitter: a random delay up to the exponential backoff of the attempt
+    private long backoff(int attempt) {
+        long backoff = baseBackoff << Math.min(attempt - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoff) {
+            backoff = maxBackoff;
+        }
+        return ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    private class RetryingRequest<T> extends AbstractRequest<T> {
+        private final boolean idempotent;
+        private final Supplier<Request<T>> factory;
+
+        RetryingRequest(boolean idempotent, Supplier<Request<T>> factory) {
+            this.idempotent = idempotent;
+            this.factory = factory;
+        }
+
+        @Override
+        T doExecute() throws IOException {
+            budget.onRequest();
+            long backoff;
+            for (int attempt = 1; ; attempt++) {
+                if (!breaker.allowRequest()) {
+                    throw new CircuitBreakerOpenException("Circuit breaker is open for " + provider);
+                }
+                try {
+                    T result = track(factory.get()).execute();
+                    onResult(null);
+                    return result;
+                } catch (IOException | RuntimeException e) {
+                    if (isCanceled()) {
+                        breaker.onCancel();
+                        throw e;
+                    }
+                    onResult(e);
+                    backoff = backoff(attempt);
+                    // Gives up if the time limit expires before the retry
+                    if (backoff >= remaining() || !shouldRetry(idempotent, attempt, e)) {
+                        throw e;
+                    }
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        @Override
+        CompletableFuture<T> doExecuteAsync(Executor executor) {
+            budget.onRequest();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            attempt(result, executor, 1);
+            return result;
+        }
+
+        private void attempt(CompletableFuture<T> result, Executor executor, int attempt) {
+            if (result.isDone()) {
+                return;
+            }
+            if (!breaker.allowRequest()) {
+                result.completeExceptionally(new CircuitBreakerOpenException("Circuit breaker is open for " + provider));
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = track(factory.get()).executeAsync(executor);
+            } catch (RuntimeException e) {
+                onResult(e);
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+            future.whenComplete((value, exception) -> {
+                if (exception != null && (future.isCancelled() || isCanceled())) {
+                    breaker.onCancel();
+                    result.completeExceptionally(unwrap(exception));
+                    return;
+                }
+                onResult(exception);
+                long backoff = backoff(attempt);
+                if (exception == null) {
+                    result.complete(value);
+                } else if (!result.isDone() && backoff < remaining() && shouldRetry(idempotent, attempt, exception)) {
+                    scheduler.schedule(() -> attempt(result, executor, attempt + 1), backoff, TimeUnit.NANOSECONDS);
+                } else {
+                    result.completeExceptionally(unwrap(exception));
+                }
+            });
+        }
+    }
+
+    // A token bucket filled by the requests and drained by the retries
+    private static class RetryBudget {
+        private final double ratio;
+        private final double capacity;
+        private double tokens;
+
+        RetryBudget(double ratio, double capacity) {
+            this.ratio = ratio;
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        synchronized void onRequest() {
+            tokens = Math.min(capacity, tokens + ratio);
+        }
+
+        synchronized boolean tryRetry() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+
+    private static class CircuitBreaker {
+        private final int failureThreshold;
+        private final long openDuration;
+        private CircuitState state = CircuitState.CLOSED;
+        private int failures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int failureThreshold, long openDuration) {
+            this.failureThreshold = failureThreshold;
+            this.openDuration = openDuration;
+        }
+
+        synchronized CircuitState getState() {
+            return state;
+        }
+
+        synchronized boolean allowRequest() {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - openedAt < openDuration) {
+                        return false;
+                    }
+                    state = CircuitState.HALF_OPEN;
+                    trialInFlight = true;
+                    return true;
+                default:
+                    if (trialInFlight) {
+                        return false;
+                    }
+                    trialInFlight = true;
+                    return true;
+            }
+        }
+
+        synchronized void onSuccess() {
+            failures = 0;
+            trialInFlight = false;
+            state = CircuitState.CLOSED;
+        }
+
+        synchronized void onFailure() {
+            trialInFlight = false;
+            if (state == CircuitState.HALF_OPEN || ++failures >= failureThreshold) {
+                state = CircuitState.OPEN;
+                openedAt = System.nanoTime();
+            }
+        }
+
+        synchronized void onCancel() {
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * Builder for RetryingProvider
+     */
+    public static class Builder {
+        private final Provider provider;
+        private int maxAttempts = 3;
+        private long baseBackoff = TimeUnit.MILLISECONDS.toNanos(100);
+        private long maxBackoff = TimeUnit.SECONDS.toNanos(5);
+        private double budgetRatio = 0.1;
+        private double budgetCapacity = 10;
+        private int failureThreshold = 5;
+        private long openDuration = TimeUnit.SECONDS.toNanos(10);
+
+        /**
+         * Creates a builder
+         *
+         * @param provider the provider of the endpoint
+         */
+        public Builder(Provider provider) {
+            this.provider = provider;
+        }
+
+        /**
+         * Sets the maximum number of the attempts including the first one
+         *
+         * @param maxAttempts the number of the attempts
+         * @return this builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts should be positive");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff of the first retry and the upper bound of the backoff.
+         * The backoff doubles for every retry and the actual delay is a random value up to it.
+         *
+         * @param base the backoff of the first retry
+         * @param max the upper bound of the backoff
+         * @param unit the time unit of the backoffs
+         * @return this builder
+         */
+        public Builder backoff(long base, long max, TimeUnit unit) {
+            this.baseBackoff = unit.toNanos(base);
+            this.maxBackoff = unit.toNanos(max);
+            return this;
+        }
+
+        /**
+         * Sets the retry budget
+         *
+         * @param ratio the share of the requests which may be retried, ex) 0.1 for 10%
+         * @param capacity the number of the retries which may be spent at once
+         * @return this builder
+         */
+        public Builder retryBudget(double ratio, double capacity) {
+            if (ratio < 0 || capacity < 0) {
+                throw new IllegalArgumentException("The budget should not be negative");
+            }
+            this.budgetRatio = ratio;
+            this.budgetCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets the number of consecutive failures after which the circuit breaker opens
+         *
+         * @param failureThreshold the number of failures
+         * @return this builder
+         */
+        public Builder failureThreshold(int failureThreshold) {
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException("failureThreshold should be positive");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the duration for which the circuit breaker stays open before a trial request
+         *
+         * @param duration the duration
+         * @param unit the time unit of the duration
+         * @return this builder
+         */
+        public Builder openDuration(long duration, TimeUnit unit) {
+            this.openDuration = unit.toNanos(duration);
+            return this;
+        }
+
+        public RetryingProvider build() {
+            return new RetryingProvider(this);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx;
+
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.data.TransactionResult;
+import foundation.icon.icx.transport.http.HttpProvider;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchTest {
+    private MockWebServer server;
+    private IconService iconService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        iconService = new IconService(new HttpProvider(server.url("/api/v3").toString()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testBatch() throws Exception {
+        server.enqueue(new MockResponse().setBody("[" +
+                "{\"jsonrpc\":\"2.0\",\"id\":2,\"error\":{\"code\":-32602,\"message\":\"Invalid params\"}}," +
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}]"));
+
+        Address address = new Address("hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31");
+        Batch batch = iconService.batch();
+        Batch.Entry<BigInteger> balance = batch.add(service -> service.getBalance(address));
+        Batch.Entry<TransactionResult> result = batch.add(service -> service.getTransactionResult(
+                new Bytes("0x2600770376fbf291d3d445054d45ed15280dd33c2038931aace3f7ea2ab59dbc")));
+        assertEquals(2, batch.size());
+        assertFalse(balance.isDone());
+
+        batch.execute();
+
+        assertTrue(balance.isDone());
+        assertNull(balance.getError());
+        assertEquals(BigInteger.valueOf(100), balance.get());
+        assertTrue(result.isDone());
+        assertEquals(-32602, result.getError().getCode());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/api/v3/", request.getPath());
+        String body = request.getBody().readUtf8();
+        assertTrue(body.startsWith("[{"));
+        assertTrue(body.contains("\"id\":1"));
+        assertTrue(body.contains("\"id\":2"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testBatchElementError() throws Exception {
+        server.enqueue(new MockResponse().setBody("[" +
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}," +
+                "{\"jsonrpc\":\"2.0\",\"id\":2,\"error\":{\"code\":-32602,\"message\":\"Invalid params\"}}]"));
+
+        Batch batch = iconService.batch();
+        Batch.Entry<BigInteger> supply = batch.add(IconService::getTotalSupply);
+        Batch.Entry<BigInteger> balance = batch.add(service -> service.getBalance(
+                new Address("hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31")));
+        batch.execute();
+
+        assertEquals(BigInteger.valueOf(100), supply.get());
+        RpcError error = assertThrows(RpcError.class, balance::get);
+        assertEquals(-32602, error.getCode());
+        assertEquals(-32602, balance.getError().getCode());
+    }
+
+    @Test
+    void testBatchError() {
+        server.enqueue(new MockResponse().setBody(
+                "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}"));
+
+        Batch batch = iconService.batch();
+        Batch.Entry<BigInteger> supply = batch.add(IconService::getTotalSupply);
+        RpcError error = assertThrows(RpcError.class, batch::execute);
+        assertEquals(-32600, error.getCode());
+        assertFalse(supply.isDone());
+    }
+
+    @Test
+    void testMixedEndpoints() {
+        Batch batch = iconService.batch();
+        batch.add(IconService::getTotalSupply);
+        batch.add(service -> service.estimateStep(TransactionBuilder.newBuilder()
+                .nid(BigInteger.ONE)
+                .from(new Address("hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31"))
+                .to(new Address("hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31"))
+                .build()));
+        assertThrows(IllegalArgumentException.class, batch::execute);
+    }
+
+    @Test
+    void testForeignRequest() {
+        Batch batch = iconService.batch();
+        assertThrows(IllegalArgumentException.class, () -> batch.add(service -> iconService.getTotalSupply()));
+    }
+}
@@ -39,12 +39,16 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class IconServiceTest {
     private static SecureRandom secureRandom;
@@ -84,6 +88,29 @@ class IconServiceTest {
                 argThat(Objects::nonNull));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTimeoutNotSupported() {
+        Provider provider = mock(Provider.class);
+        // The request of a provider which does not support the time limit
+        Request<BigInteger> call = new Request<BigInteger>() {
+            @Override
+            public BigInteger execute() {
+                return BigInteger.ONE;
+            }
+
+            @Override
+            public void execute(Callback<BigInteger> callback) {
+                callback.onSuccess(BigInteger.ONE);
+            }
+        };
+        when(provider.request(any(), any())).thenReturn((Request) call);
+
+        IconService iconService = new IconService(provider);
+        iconService.setTimeout(1, TimeUnit.SECONDS);
+        assertSame(call, iconService.getTotalSupply());
+    }
+
     @Test
     void testGetBalance() {
         Provider provider = mock(Provider.class);
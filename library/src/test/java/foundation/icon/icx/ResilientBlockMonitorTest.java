@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx;
+
+import foundation.icon.icx.data.BlockNotification;
+import foundation.icon.icx.transport.http.HttpProvider;
+import foundation.icon.icx.transport.monitor.Monitor;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientBlockMonitorTest {
+    private static final Pattern HEIGHT = Pattern.compile("\"height\"\\s*:\\s*\"0x([0-9a-f]+)\"");
+    private static final String HASH = "0x1fcf7c34dc875681761bdaa5d75d770e78e8166b5c4f06c226c53300cbe85f57";
+
+    private MockWebServer server;
+    private IconService iconService;
+    private final List<Long> startHeights = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> fetchedHeights = Collections.synchronizedList(new ArrayList<>());
+    private volatile BiConsumer<WebSocket, Long> session;
+    private volatile long fetchDelay;
+    private volatile boolean silent;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getHeader("Upgrade") != null) {
+                    return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+                        @Override
+                        public void onMessage(WebSocket webSocket, String text) {
+                            long height = heightOf(text);
+                            startHeights.add(height);
+                            if (silent) {
+                                return;
+                            }
+                            webSocket.send("{\"code\":0}");
+                            session.accept(webSocket, height);
+                        }
+
+                        @Override
+                        public void onClosing(WebSocket webSocket, int code, String reason) {
+                            webSocket.close(1000, null);
+                        }
+                    });
+                }
+                String body = request.getBody().readUtf8();
+                long height = heightOf(body);
+                fetchedHeights.add(height);
+                return new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":"
+                        + "{\"height\":" + height + ",\"block_hash\":\"" + HASH + "\"}}")
+                        .setHeadersDelay(fetchDelay, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        iconService = new IconService(new HttpProvider(server.url("/api/v3").toString()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private static long heightOf(String text) {
+        Matcher matcher = HEIGHT.matcher(text);
+        assertTrue(matcher.find(), text);
+        return Long.parseLong(matcher.group(1), 16);
+    }
+
+    private static void notify(WebSocket webSocket, long height) {
+        webSocket.send("{\"height\":\"0x" + Long.toHexString(height) + "\",\"hash\":\"" + HASH + "\"}");
+    }
+
+    private static class Collector implements Monitor.Listener<BlockNotification> {
+        final List<Long> heights = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch;
+        int starts;
+
+        Collector(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onStart() {
+            starts++;
+        }
+
+        @Override
+        public void onEvent(BlockNotification msg) {
+            heights.add(msg.getHeight().longValue());
+            latch.countDown();
+        }
+
+        @Override
+        public void onError(long code) {
+        }
+
+        @Override
+        public void onClose() {
+        }
+    }
+
+    @Test
+    void testReconnectAndFillGap() throws Exception {
+        session = (webSocket, height) -> {
+            if (height == 10) {
+                notify(webSocket, 10);
+                notify(webSocket, 11);
+                notify(webSocket, 10);
+                notify(webSocket, 12);
+                webSocket.close(1001, null);
+            } else {
+                // The node skips 13 and 14
+                notify(webSocket, 15);
+                notify(webSocket, 16);
+            }
+        };
+        ResilientBlockMonitor monitor = new ResilientBlockMonitor.Builder(iconService, BigInteger.TEN)
+                .backoff(1, 10, TimeUnit.MILLISECONDS)
+                .build();
+        Collector collector = new Collector(7);
+        assertTrue(monitor.start(collector));
+        assertTrue(collector.latch.await(10, TimeUnit.SECONDS));
+        monitor.stop();
+
+        assertEquals(Arrays.asList(10L, 11L, 12L, 13L, 14L, 15L, 16L), collector.heights);
+        assertEquals(Arrays.asList(10L, 13L), startHeights);
+        assertEquals(Arrays.asList(13L, 14L), fetchedHeights);
+        assertEquals(1, collector.starts);
+        assertEquals(1, monitor.getReconnectCount());
+        assertEquals(2, monitor.getFilledCount());
+        assertEquals(BigInteger.valueOf(16), monitor.getLastHeight());
+    }
+
+    @Test
+    void testStall() throws Exception {
+        // The first connection stays open but delivers nothing
+        session = (webSocket, height) -> {
+            if (startHeights.size() > 1) {
+                notify(webSocket, height);
+            }
+        };
+        ResilientBlockMonitor monitor = new ResilientBlockMonitor.Builder(iconService, BigInteger.TEN)
+                .backoff(1, 10, TimeUnit.MILLISECONDS)
+                .stallTimeout(300, TimeUnit.MILLISECONDS)
+                .build();
+        Collector collector = new Collector(1);
+        assertTrue(monitor.start(collector));
+        assertTrue(collector.latch.await(10, TimeUnit.SECONDS));
+        monitor.stop();
+
+        assertEquals(Collections.singletonList(10L), collector.heights);
+        assertEquals(Arrays.asList(10L, 10L), startHeights);
+        assertEquals(1, monitor.getReconnectCount());
+    }
+
+    @Test
+    void testLongFill() throws Exception {
+        // filling the gap takes about twice the stall timeout, but each block counts as an activity.
+        // The stall timeout leaves room for the first connection and the first fetch on a cold JVM.
+        fetchDelay = 400;
+        session = (webSocket, height) -> {
+            notify(webSocket, 10);
+            notify(webSocket, 16);
+        };
+        ResilientBlockMonitor monitor = new ResilientBlockMonitor.Builder(iconService, BigInteger.TEN)
+                .backoff(1, 10, TimeUnit.MILLISECONDS)
+                .stallTimeout(1, TimeUnit.SECONDS)
+                .build();
+        Collector collector = new Collector(7);
+        assertTrue(monitor.start(collector));
+        assertTrue(collector.latch.await(10, TimeUnit.SECONDS));
+        // within the stall timeout after the last block
+        Thread.sleep(200);
+        monitor.stop();
+
+        assertEquals(Arrays.asList(10L, 11L, 12L, 13L, 14L, 15L, 16L), collector.heights);
+        assertEquals(0, monitor.getReconnectCount());
+        assertEquals(5, monitor.getFilledCount());
+    }
+
+    @Test
+    void testStartAsyncTimeout() throws Exception {
+        silent = true;
+        ResilientBlockMonitor monitor = new ResilientBlockMonitor.Builder(iconService, BigInteger.TEN)
+                .maxAttempts(1)
+                .build();
+        Collector collector = new Collector(1);
+        // The handshake is limited by the given timeout rather than the one of start()
+        CompletableFuture<Boolean> started = monitor.startAsync(collector, 100, TimeUnit.MILLISECONDS);
+        assertFalse(started.get(2, TimeUnit.SECONDS));
+        assertEquals(0, collector.starts);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx;
+
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.EventNotification;
+import foundation.icon.icx.transport.http.HttpProvider;
+import foundation.icon.icx.transport.jsonrpc.RpcCodec;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.monitor.Monitor;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionManagerTest {
+    private static final String HASH = "0x1fcf7c34dc875681761bdaa5d75d770e78e8166b5c4f06c226c53300cbe85f57";
+    private static final String TRANSFER = "Transfer(Address,Address,int)";
+    private static final Address SCORE = new Address("cx0000000000000000000000000000000000000001");
+
+    private MockWebServer server;
+    private IconService iconService;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile long handshakeDelay;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        iconService = new IconService(new HttpProvider(server.url("/api/v3").toString()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    // Accepts the block request and sends the given notifications
+    private void enqueue(String... notifications) {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                requests.add(text);
+                try {
+                    Thread.sleep(handshakeDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                webSocket.send("{\"code\":0}");
+                for (String notification : notifications) {
+                    webSocket.send(notification);
+                }
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
+            }
+        }));
+    }
+
+    private static class Collector implements Monitor.Listener<EventNotification> {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        int starts;
+
+        @Override
+        public void onStart() {
+            starts++;
+        }
+
+        @Override
+        public void onEvent(EventNotification msg) {
+            events.add(msg.getHeight() + ":" + msg.getIndex() + ":" + Arrays.toString(msg.getEvents()));
+            latch.countDown();
+        }
+
+        @Override
+        public void onError(long code) {
+        }
+
+        @Override
+        public void onClose() {
+            closed.countDown();
+        }
+    }
+
+    @Test
+    void testMultiplex() throws Exception {
+        enqueue("{\"height\":\"0xa\",\"hash\":\"" + HASH + "\",\"indexes\":[[\"0x1\"]],\"events\":[[[\"0x0\",\"0x2\"]]]}");
+        enqueue("{\"height\":\"0xa\",\"hash\":\"" + HASH + "\",\"indexes\":[[\"0x1\"],[]],\"events\":[[[\"0x0\"]],[]]}",
+                "{\"height\":\"0xb\",\"hash\":\"" + HASH + "\",\"indexes\":[[],[\"0x3\"]],\"events\":[[],[[\"0x1\"]]]}");
+        enqueue();
+
+        SubscriptionManager manager = new SubscriptionManager(iconService, BigInteger.TEN);
+        Collector a = new Collector();
+        Collector b = new Collector();
+        Collector c = new Collector();
+        assertTrue(manager.monitorEvents(TRANSFER, SCORE, null, null).start(a));
+        assertTrue(a.latch.await(5, TimeUnit.SECONDS));
+
+        // The same filter shares the connection
+        assertTrue(manager.monitorEvents(TRANSFER, SCORE, null, null).start(b));
+        assertEquals(1, manager.getFilterCount());
+        assertEquals(2, manager.getSubscriptionCount());
+        assertEquals(0, manager.getResubscribeCount());
+
+        // A new filter replaces the connection from the next block, so the block 10 is not repeated
+        Monitor<EventNotification> monitor = manager.monitorEvents("Approval(Address,Address,int)", null, null, null);
+        assertTrue(monitor.start(c));
+        assertTrue(c.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("10:1:[0, 2]"), a.events);
+        assertEquals(Collections.emptyList(), b.events);
+        assertEquals(Collections.singletonList("11:3:[1]"), c.events);
+        assertEquals(2, manager.getFilterCount());
+        assertEquals(1, manager.getResubscribeCount());
+        assertEquals(1, a.starts);
+        assertEquals(1, c.starts);
+
+        monitor.stop();
+        assertEquals(1, manager.getFilterCount());
+        manager.close();
+        assertTrue(a.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(b.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, manager.getSubscriptionCount());
+
+        RpcObject first = RpcCodec.readItem(requests.get(0)).asObject();
+        assertEquals(BigInteger.TEN, first.getItem("height").asInteger());
+        assertEquals(1, first.getItem("eventFilters").asArray().size());
+        RpcObject second = RpcCodec.readItem(requests.get(1)).asObject();
+        assertEquals(BigInteger.valueOf(11), second.getItem("height").asInteger());
+        assertEquals(2, second.getItem("eventFilters").asArray().size());
+        assertEquals(TRANSFER, second.getItem("eventFilters").asArray().get(0).asObject().getItem("event").asString());
+    }
+
+    @Test
+    void testCoalesceResubscribes() throws Exception {
+        enqueue();
+        enqueue();
+        handshakeDelay = 300;
+
+        SubscriptionManager manager = new SubscriptionManager(iconService, BigInteger.TEN);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        futures.add(manager.monitorEvents(TRANSFER, SCORE, null, null).startAsync(new Collector(), 5, TimeUnit.SECONDS));
+        // The changes made during the handshake of the first connection are covered by one more connection
+        Thread.sleep(100);
+        handshakeDelay = 0;
+        for (String event : new String[]{"Approval(Address,Address,int)", "Mint(Address,int)", "Burn(Address,int)"}) {
+            futures.add(manager.monitorEvents(event, SCORE, null, null).startAsync(new Collector(), 5, TimeUnit.SECONDS));
+        }
+        for (CompletableFuture<Boolean> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(4, manager.getFilterCount());
+        assertEquals(1, manager.getResubscribeCount());
+        assertEquals(2, requests.size());
+        RpcObject second = RpcCodec.readItem(requests.get(1)).asObject();
+        assertEquals(4, second.getItem("eventFilters").asArray().size());
+        manager.close();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.jfr;
+
+import foundation.icon.icx.KeyWallet;
+import foundation.icon.icx.SampleKeys;
+import foundation.icon.icx.data.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FlightEventsTest {
+
+    @Test
+    void testNoRecording() {
+        assertNull(FlightEvents.SIGN.begin());
+    }
+
+    @Test
+    void testRecording() throws Exception {
+        Class<?> recordingClass;
+        try {
+            recordingClass = Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            recordingClass = null;
+        }
+        assumeTrue(recordingClass != null, "The flight recorder is not available");
+
+        // jdk.jfr is accessed through the reflection, to compile the test for Java 8
+        Object recording = recordingClass.getConstructor().newInstance();
+        recordingClass.getMethod("enable", String.class).invoke(recording, FlightEvents.SIGN.getName());
+        recordingClass.getMethod("start").invoke(recording);
+        try {
+            KeyWallet wallet = KeyWallet.load(new Bytes(SampleKeys.PRIVATE_KEY_STRING));
+            wallet.sign(new byte[32]);
+        } finally {
+            recordingClass.getMethod("stop").invoke(recording);
+        }
+        File file = File.createTempFile("icx", ".jfr");
+        try {
+            recordingClass.getMethod("dump", Path.class).invoke(recording, file.toPath());
+            Method readAllEvents = Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class);
+            List<String> names = new ArrayList<>();
+            for (Object event : (List<?>) readAllEvents.invoke(null, file.toPath())) {
+                Object type = event.getClass().getMethod("getEventType").invoke(event);
+                names.add((String) type.getClass().getMethod("getName").invoke(type));
+            }
+            assertTrue(names.contains(FlightEvents.SIGN.getName()), names.toString());
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            file.delete();
+        }
+        assertNull(FlightEvents.SIGN.begin());
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.reactive;
+
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.data.Block;
+import foundation.icon.icx.transport.http.HttpProvider;
+import foundation.icon.icx.transport.monitor.Monitor;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublishersTest {
+
+    private static class TestSubscriber<T> implements Subscriber<T> {
+        final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile CountDownLatch received = new CountDownLatch(0);
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(T t) {
+            items.add(t);
+            received.countDown();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        void request(long n, int expected) throws InterruptedException {
+            received = new CountDownLatch(expected);
+            subscription.request(n);
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    // Gives the listener to the test instead of connecting to a node
+    private static class StubMonitor implements Monitor<Integer> {
+        final CompletableFuture<Listener<Integer>> listener = new CompletableFuture<>();
+        volatile boolean stopped;
+
+        @Override
+        public boolean start(Listener<Integer> listener) {
+            this.listener.complete(listener);
+            listener.onStart();
+            return true;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+        }
+    }
+
+    @Test
+    void testMonitorDemand() throws Exception {
+        StubMonitor monitor = new StubMonitor();
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        Publishers.monitor(() -> monitor).subscribe(subscriber);
+        Monitor.Listener<Integer> listener = monitor.listener.get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Void> notifier = CompletableFuture.runAsync(() -> {
+            for (int i = 1; i <= 5; i++) {
+                listener.onEvent(i);
+            }
+            listener.onClose();
+        });
+        subscriber.request(2, 2);
+        // The monitor waits for the demand
+        assertThrows(TimeoutException.class, () -> notifier.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList(1, 2), subscriber.items);
+
+        subscriber.request(3, 3);
+        notifier.get(5, TimeUnit.SECONDS);
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), subscriber.items);
+        assertTrue(monitor.stopped);
+    }
+
+    @Test
+    void testMonitorCancel() throws Exception {
+        StubMonitor monitor = new StubMonitor();
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        Publishers.monitor(() -> monitor).subscribe(subscriber);
+        Monitor.Listener<Integer> listener = monitor.listener.get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Void> notifier = CompletableFuture.runAsync(() -> listener.onEvent(1));
+        assertThrows(TimeoutException.class, () -> notifier.get(100, TimeUnit.MILLISECONDS));
+        subscriber.subscription.cancel();
+        notifier.get(5, TimeUnit.SECONDS);
+        assertTrue(monitor.stopped);
+        assertEquals(Collections.emptyList(), subscriber.items);
+    }
+
+    @Test
+    void testMonitorSerialSignals() throws Exception {
+        StubMonitor monitor = new StubMonitor();
+        CountDownLatch inNext = new CountDownLatch(1);
+        AtomicBoolean emitting = new AtomicBoolean();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>() {
+            @Override
+            public void onNext(Integer t) {
+                emitting.set(true);
+                inNext.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                emitting.set(false);
+                super.onNext(t);
+            }
+
+            @Override
+            public void onComplete() {
+                overlapped.set(emitting.get());
+                super.onComplete();
+            }
+        };
+        Publishers.monitor(() -> monitor).subscribe(subscriber);
+        Monitor.Listener<Integer> listener = monitor.listener.get(5, TimeUnit.SECONDS);
+
+        subscriber.subscription.request(1);
+        CompletableFuture<Void> notifier = CompletableFuture.runAsync(() -> listener.onEvent(1));
+        assertTrue(inNext.await(5, TimeUnit.SECONDS));
+        // The close comes while onNext is in progress, and it is delivered after onNext
+        listener.onClose();
+        notifier.get(5, TimeUnit.SECONDS);
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+        assertEquals(Collections.singletonList(1), subscriber.items);
+    }
+
+    @Test
+    void testBlockRange() throws Exception {
+        Pattern height = Pattern.compile("\"height\"\\s*:\\s*\"0x([0-9a-f]+)\"");
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                Matcher matcher = height.matcher(request.getBody().readUtf8());
+                assertTrue(matcher.find());
+                long h = Long.parseLong(matcher.group(1), 16);
+                return new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"height\":" + h
+                        + ",\"block_hash\":\"0x1fcf7c34dc875681761bdaa5d75d770e78e8166b5c4f06c226c53300cbe85f57\"}}")
+                        .setHeadersDelay((10 - h % 10) * 5, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        try {
+            IconService iconService = new IconService(new HttpProvider(server.url("/api/v3").toString()));
+            TestSubscriber<Block> subscriber = new TestSubscriber<>();
+            Publishers.blockRange(iconService, BigInteger.valueOf(1), BigInteger.valueOf(30), 4)
+                    .subscribe(subscriber);
+            assertEquals(0, server.getRequestCount());
+
+            // Fetches only as many as the demand
+            subscriber.request(2, 2);
+            Thread.sleep(100);
+            assertEquals(2, server.getRequestCount());
+
+            subscriber.request(Long.MAX_VALUE, 28);
+            assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+            assertEquals(30, server.getRequestCount());
+            for (int i = 0; i < 30; i++) {
+                assertEquals(BigInteger.valueOf(i + 1), subscriber.items.get(i).getHeight());
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+}
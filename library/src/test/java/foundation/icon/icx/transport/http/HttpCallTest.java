@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.metrics.CallMetrics.Phase;
+import foundation.icon.icx.transport.metrics.HistogramMetrics;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpCallTest {
+    private MockWebServer server;
+    private IconService iconService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        iconService = new IconService(new HttpProvider(server.url("/api/v3").toString()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testExecuteAsync() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+
+        CompletableFuture<BigInteger> future = iconService.getTotalSupply().executeAsync();
+        assertEquals(BigInteger.valueOf(100), future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testExecuteAsyncWithExecutor() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "converter"));
+        try {
+            AtomicReference<String> threadName = new AtomicReference<>();
+            BigInteger result = iconService.getTotalSupply().executeAsync(executor)
+                    .thenApply(supply -> {
+                        threadName.set(Thread.currentThread().getName());
+                        return supply;
+                    })
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(BigInteger.valueOf(100), result);
+            assertEquals("converter", threadName.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testExecuteAsyncError() {
+        server.enqueue(new MockResponse().setBody(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32602,\"message\":\"Invalid params\"}}"));
+
+        CompletableFuture<BigInteger> future = iconService.getTotalSupply().executeAsync();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RpcError);
+        assertEquals(-32602, ((RpcError) e.getCause()).getCode());
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        CompletableFuture<BigInteger> future = iconService.getTotalSupply().executeAsync();
+        server.takeRequest(5, TimeUnit.SECONDS);
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    void testCancelRequest() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        Request<BigInteger> request = iconService.getTotalSupply();
+        CompletableFuture<BigInteger> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return request.execute();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        server.takeRequest(5, TimeUnit.SECONDS);
+        request.cancel();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        // the canceled request is not sent again
+        assertThrows(IOException.class, request::execute);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        long start = System.nanoTime();
+        assertThrows(InterruptedIOException.class, () ->
+                iconService.getTotalSupply().timeout(100, TimeUnit.MILLISECONDS).execute());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+
+        iconService.setTimeout(100, TimeUnit.MILLISECONDS);
+        CompletableFuture<BigInteger> future = iconService.getTotalSupply().executeAsync();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof InterruptedIOException);
+    }
+
+    @Test
+    void testWaitTimeoutHeader() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{}}"));
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+
+        iconService.setTimeout("icx_waitTransactionResult", 3, TimeUnit.SECONDS);
+        iconService.setTimeout(10, TimeUnit.SECONDS);
+        iconService.waitTransactionResult(new Bytes("0x2600770376fbf291d3d445054d45ed15280dd33c2038931aace3f7ea2ab59dbc"))
+                .execute();
+        assertEquals("timeout=3000", server.takeRequest().getHeader("Icon-Options"));
+
+        // the header is sent only for the wait-style methods
+        iconService.getTotalSupply().execute();
+        assertNull(server.takeRequest().getHeader("Icon-Options"));
+    }
+
+    @Test
+    void testMetrics() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32602,\"message\":\"Invalid params\"}}"));
+        server.enqueue(new MockResponse().setResponseCode(502));
+
+        HttpProvider provider = new HttpProvider(server.url("/api/v3").toString());
+        HistogramMetrics metrics = new HistogramMetrics();
+        provider.setMetricsListener(metrics);
+        IconService iconService = new IconService(provider);
+
+        assertEquals(BigInteger.valueOf(100), iconService.getTotalSupply().execute());
+        assertThrows(RpcError.class, () -> iconService.getTotalSupply().execute());
+        ExecutionException e = assertThrows(ExecutionException.class, () ->
+                iconService.getTotalSupply().executeAsync().get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RpcError);
+
+        String endpoint = "http://" + server.getHostName() + ":" + server.getPort();
+        HistogramMetrics.Stats stats = metrics.getStats(endpoint, "icx_getTotalSupply");
+        assertEquals(3, stats.getRequestCount());
+        assertEquals(2, stats.getErrorCount());
+        assertEquals(0, stats.getInFlight());
+        assertEquals(1L, (long) stats.getErrorCodes().get(-32602L));
+        assertEquals(1L, (long) stats.getErrorCodes().get(502L));
+        assertTrue(stats.getRequestBytes() > 0);
+        assertTrue(stats.getResponseBytes() > 0);
+        assertEquals(3, stats.getHistogram(Phase.TOTAL).getCount());
+        assertEquals(3, stats.getHistogram(Phase.TIME_TO_FIRST_BYTE).getCount());
+        assertEquals(2, stats.getHistogram(Phase.DECODE).getCount());
+        assertEquals(1, stats.getHistogram(Phase.CONVERT).getCount());
+        assertEquals(1, stats.getHistogram(Phase.CONNECT).getCount());
+        assertFalse(metrics.getAll().isEmpty());
+
+        // the requests without the listener are not measured
+        provider.setMetricsListener(null);
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+        iconService.getTotalSupply().execute();
+        assertEquals(3, stats.getRequestCount());
+    }
+
+    @Test
+    void testCompression() throws Exception {
+        Buffer compressed = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(compressed))) {
+            sink.writeUtf8("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}");
+        }
+        server.enqueue(new MockResponse().setHeader("Content-Encoding", "gzip").setBody(compressed));
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+
+        HttpProvider provider = new HttpProvider(server.url("/api/v3").toString());
+        provider.setRequestCompression(200);
+        IconService iconService = new IconService(provider);
+
+        // the gzip encoded response is decoded, and the small request is sent as it is
+        assertEquals(BigInteger.valueOf(100), iconService.getTotalSupply().execute());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+        assertNull(request.getHeader("Content-Encoding"));
+        assertTrue(request.getBody().readUtf8().contains("icx_getTotalSupply"));
+
+        // the request as large as the threshold is compressed
+        provider.setRequestCompression(10);
+        iconService.getTotalSupply().execute();
+        request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        Buffer content = new Buffer();
+        content.writeAll(new GzipSource(request.getBody()));
+        assertTrue(content.readUtf8().contains("icx_getTotalSupply"));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.data.Bytes;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientManagerTest {
+    private MockWebServer server;
+    private HttpClientManager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        manager = new HttpClientManager.Builder()
+                .maxThreads(2)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        manager.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testSharedTransport() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+        }
+        String mainnet = server.url("/api/v3").toString();
+        String channel = server.url("/api/v3/channel").toString();
+        manager.register(BigInteger.ONE, mainnet);
+        manager.register(BigInteger.valueOf(2), channel);
+        assertSame(manager.getProvider(mainnet), manager.getProvider(BigInteger.ONE));
+        assertThrows(IllegalArgumentException.class, () -> manager.getProvider(BigInteger.TEN));
+
+        List<CompletableFuture<BigInteger>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(manager.getIconService(BigInteger.ONE).getTotalSupply().executeAsync());
+            futures.add(manager.getIconService(BigInteger.valueOf(2)).getTotalSupply().executeAsync());
+        }
+        for (CompletableFuture<BigInteger> future : futures) {
+            assertEquals(BigInteger.valueOf(100), future.get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(manager.getThreadCount() <= 2);
+
+        // the channels are routed by the urls of the providers
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            paths.add(server.takeRequest().getPath());
+        }
+        assertEquals(5, paths.stream().filter("/api/v3/channel"::equals).count());
+
+        // the connections are shared by the providers
+        assertTrue(manager.getConnectionStats().getConnections().size() <= 2);
+        IconService iconService = new IconService(manager.getProvider(channel));
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+        assertEquals(BigInteger.valueOf(100), iconService.getTotalSupply().execute());
+
+        // the shared lanes are not switched by a provider
+        assertThrows(IllegalStateException.class, () -> manager.getProvider(channel).enableHttp2(100));
+    }
+
+    @Test
+    void testHighPriorityThreads() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getBody().readUtf8().contains("icx_waitTransactionResult")) {
+                    return new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{}}");
+                }
+                return new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}")
+                        .setHeadersDelay(1, TimeUnit.SECONDS);
+            }
+        });
+        IconService iconService = new IconService(manager.getProvider(server.url("/api/v3").toString()));
+        List<CompletableFuture<BigInteger>> reads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            reads.add(iconService.getTotalSupply().executeAsync());
+        }
+
+        // the wait does not queue behind the reads filling the shared threads
+        long start = System.nanoTime();
+        iconService.waitTransactionResult(new Bytes("0x2600770376fbf291d3d445054d45ed15280dd33c2038931aace3f7ea2ab59dbc"))
+                .executeAsync().get(5, TimeUnit.SECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        for (CompletableFuture<BigInteger> read : reads) {
+            assertEquals(BigInteger.valueOf(100), read.get(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -16,10 +16,37 @@
 
 package foundation.icon.icx.transport.http;
 
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.data.BlockNotification;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.monitor.Monitor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class HttpProviderTest {
 
@@ -67,4 +94,232 @@ class HttpProviderTest {
             });
         }
     }
+
+    @Test
+    void testPriorityLanes() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getBody().readUtf8().contains("icx_waitTransactionResult")) {
+                    return new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{}}");
+                }
+                return new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}")
+                        .setHeadersDelay(1, TimeUnit.SECONDS);
+            }
+        });
+        server.start();
+        try {
+            HttpProvider provider = new HttpProvider(server.url("/api/v3").toString());
+            provider.getDispatcher(Priority.LOW).setMaxRequests(1);
+            IconService backfill = new IconService(provider.withPriority(Priority.LOW));
+
+            List<CompletableFuture<BigInteger>> reads = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                reads.add(backfill.getTotalSupply().executeAsync());
+            }
+            assertEquals(2, provider.getDispatcher(Priority.LOW).queuedCallsCount());
+            assertEquals(0, provider.getDispatcher(Priority.NORMAL).queuedCallsCount());
+
+            // the wait does not queue behind the bulk reads
+            long start = System.nanoTime();
+            backfill.waitTransactionResult(new Bytes("0x2600770376fbf291d3d445054d45ed15280dd33c2038931aace3f7ea2ab59dbc"))
+                    .executeAsync().get(5, TimeUnit.SECONDS);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+            for (CompletableFuture<BigInteger> read : reads) {
+                assertEquals(BigInteger.valueOf(100), read.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testLanesSharePool() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}"));
+        server.start();
+        try {
+            OkHttpClient client = new OkHttpClient();
+            HttpProvider provider = new HttpProvider(client, server.url("/api/v3").toString());
+            new IconService(provider.withPriority(Priority.LOW)).getTotalSupply().execute();
+            // the connection of the low lane is kept in the pool of the given client
+            assertEquals(1, client.connectionPool().connectionCount());
+            assertNotSame(client.dispatcher(), provider.getDispatcher(Priority.LOW));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testGivenDispatcherUnchanged() {
+        OkHttpClient client = new OkHttpClient();
+        int maxRequestsPerHost = client.dispatcher().getMaxRequestsPerHost();
+        HttpProvider provider = new HttpProvider(client, "http://localhost:9000/api/v3");
+        okhttp3.Dispatcher normal = provider.getDispatcher(Priority.NORMAL);
+        assertNotSame(client.dispatcher(), normal);
+        assertEquals(maxRequestsPerHost, normal.getMaxRequestsPerHost());
+
+        provider.enableHttp2(2);
+        // only the dispatchers of the lanes are limited, not the one shared with the other users of the client
+        assertEquals(2, normal.getMaxRequestsPerHost());
+        assertEquals(2, provider.getDispatcher(Priority.HIGH).getMaxRequestsPerHost());
+        assertEquals(maxRequestsPerHost, client.dispatcher().getMaxRequestsPerHost());
+    }
+
+    @Test
+    void testHttp2PriorKnowledge() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        for (int i = 0; i < 10; i++) {
+            server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}")
+                    .setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        }
+        server.start();
+        try {
+            HttpProvider provider = new HttpProvider(server.url("/api/v3").toString());
+            okhttp3.Dispatcher dispatcher = provider.getDispatcher(Priority.NORMAL);
+            provider.enableHttp2(100);
+            // the dispatcher and its limits are kept
+            assertSame(dispatcher, provider.getDispatcher(Priority.NORMAL));
+            assertEquals(100, dispatcher.getMaxRequestsPerHost());
+            IconService iconService = new IconService(provider);
+
+            List<CompletableFuture<BigInteger>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(iconService.getTotalSupply().executeAsync());
+            }
+            for (CompletableFuture<BigInteger> future : futures) {
+                assertEquals(BigInteger.valueOf(100), future.get(5, TimeUnit.SECONDS));
+            }
+
+            // the calls are multiplexed over one connection
+            List<ConnectionStats.Usage> connections = provider.getConnectionStats().getConnections();
+            assertEquals(1, connections.size());
+            ConnectionStats.Usage usage = connections.get(0);
+            assertEquals(Protocol.H2_PRIOR_KNOWLEDGE, usage.getProtocol());
+            assertEquals(10, usage.getTotalStreams());
+            assertTrue(usage.getMaxActiveStreams() > 1);
+            assertEquals(0, provider.getConnectionStats().getActiveStreams());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testWarmUp() throws Exception {
+        MockWebServer server = new MockWebServer();
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(new MockResponse().setBody("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x64\"}")
+                    .setHeadersDelay(100, TimeUnit.MILLISECONDS));
+        }
+        server.start();
+        try {
+            HttpProvider provider = new HttpProvider(server.url("/api/v3").toString());
+            provider.warmUp(Priority.NORMAL, 3).get(5, TimeUnit.SECONDS);
+            assertEquals(3, server.getRequestCount());
+            assertEquals(3, provider.getConnectionStats().getConnections().size());
+
+            // the requests use the warm connections
+            IconService iconService = new IconService(provider);
+            List<CompletableFuture<BigInteger>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(iconService.getTotalSupply().executeAsync());
+            }
+            for (CompletableFuture<BigInteger> future : futures) {
+                assertEquals(BigInteger.valueOf(100), future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(3, provider.getConnectionStats().getConnections().size());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testWarmUpFailing() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.start();
+        try {
+            HttpProvider provider = new HttpProvider(server.url("/api/v3").toString());
+            ExecutionException e = assertThrows(ExecutionException.class, () ->
+                    provider.warmUp(Priority.NORMAL, 1).get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RpcError);
+            assertEquals(503, ((RpcError) e.getCause()).getCode());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testMonitorStartAsync() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+                    @Override
+                    public void onMessage(WebSocket webSocket, String text) {
+                        // Answers only the monitors of the height 1
+                        if (text.contains("\"0x1\"")) {
+                            webSocket.send("{\"code\":0}");
+                        }
+                    }
+
+                    @Override
+                    public void onClosing(WebSocket webSocket, int code, String reason) {
+                        webSocket.close(1000, null);
+                    }
+                });
+            }
+        });
+        server.start();
+        try {
+            IconService iconService = new IconService(new HttpProvider(server.url("/api/v3").toString()));
+            int count = 10;
+            CountDownLatch errors = new CountDownLatch(count / 2);
+            Monitor.Listener<BlockNotification> listener = new Monitor.Listener<BlockNotification>() {
+                @Override
+                public void onStart() {
+                }
+
+                @Override
+                public void onEvent(BlockNotification msg) {
+                }
+
+                @Override
+                public void onError(long code) {
+                    errors.countDown();
+                }
+
+                @Override
+                public void onClose() {
+                }
+            };
+            List<Monitor<BlockNotification>> monitors = new ArrayList<>();
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Monitor<BlockNotification> monitor = iconService.monitorBlocks(BigInteger.valueOf(i % 2 + 1));
+                monitors.add(monitor);
+                futures.add(monitor.startAsync(listener, 500, TimeUnit.MILLISECONDS));
+            }
+            for (int i = 0; i < count; i++) {
+                if (i % 2 == 0) {
+                    assertTrue(futures.get(i).get(5, TimeUnit.SECONDS));
+                } else {
+                    assertFalse(futures.get(i).get(5, TimeUnit.SECONDS));
+                }
+            }
+            // The handshakes are done together, and the ones timed out are cancelled
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+            assertTrue(errors.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < count; i += 2) {
+                monitors.get(i).stop();
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.transport.monitor.Monitor;
+import foundation.icon.icx.transport.monitor.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonitorDispatcherTest {
+
+    // Runs the tasks only when the test asks
+    private static class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = poll()) != null) {
+                task.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return tasks.poll();
+        }
+    }
+
+    private static class Recorder implements Monitor.Listener<Integer> {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onStart() {
+            calls.add("start");
+        }
+
+        @Override
+        public void onEvent(Integer msg) {
+            calls.add(String.valueOf(msg));
+        }
+
+        @Override
+        public void onError(long code) {
+            calls.add("error " + code);
+        }
+
+        @Override
+        public void onClose() {
+            calls.add("close");
+        }
+    }
+
+    private static class BatchRecorder extends Recorder implements Monitor.BatchListener<Integer> {
+        @Override
+        public void onEvents(List<Integer> msgs) {
+            calls.add(msgs.toString());
+        }
+    }
+
+    private static Integer parse(String frame) throws IOException {
+        try {
+            return Integer.valueOf(frame);
+        } catch (NumberFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Test
+    void testDropOldest() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        BatchRecorder listener = new BatchRecorder();
+        MonitorDispatcher<Integer> dispatcher = new MonitorDispatcher<>(
+                2, OverflowPolicy.DROP_OLDEST, executor, MonitorDispatcherTest::parse, listener);
+        assertTrue(dispatcher.offer("1"));
+        assertTrue(dispatcher.offer("2"));
+        assertTrue(dispatcher.offer("3"));
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertEquals(2, dispatcher.size());
+
+        dispatcher.finish(listener::onClose);
+        assertTrue(dispatcher.offer("4"));
+        executor.runAll();
+        assertEquals(Arrays.asList("[2, 3]", "close"), listener.calls);
+    }
+
+    @Test
+    void testFail() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder listener = new Recorder();
+        MonitorDispatcher<Integer> dispatcher = new MonitorDispatcher<>(
+                1, OverflowPolicy.FAIL, executor, MonitorDispatcherTest::parse, listener);
+        assertTrue(dispatcher.offer("1"));
+        assertFalse(dispatcher.offer("2"));
+    }
+
+    @Test
+    void testBlock() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder listener = new Recorder();
+        MonitorDispatcher<Integer> dispatcher = new MonitorDispatcher<>(
+                1, OverflowPolicy.BLOCK, executor, MonitorDispatcherTest::parse, listener);
+        assertTrue(dispatcher.offer("1"));
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dispatcher.offer("2");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+
+        // Delivering the first frame makes a room for the second one
+        executor.runAll();
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        executor.runAll();
+        assertEquals(Arrays.asList("1", "2"), listener.calls);
+    }
+
+    @Test
+    void testDecodeError() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder listener = new Recorder();
+        MonitorDispatcher<Integer> dispatcher = new MonitorDispatcher<>(
+                8, OverflowPolicy.BLOCK, executor, MonitorDispatcherTest::parse, listener);
+        dispatcher.offer("1");
+        dispatcher.offer("x");
+        dispatcher.offer("2");
+        executor.runAll();
+        assertEquals(Arrays.asList("1", "error 100", "2"), listener.calls);
+
+        // The frames not delivered yet are discarded, but the close is still delivered
+        dispatcher.offer("3");
+        dispatcher.clear();
+        dispatcher.finish(listener::onClose);
+        executor.runAll();
+        assertEquals(Arrays.asList("1", "error 100", "2", "close"), listener.calls);
+    }
+}
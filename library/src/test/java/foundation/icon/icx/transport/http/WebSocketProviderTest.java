@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.http;
+
+import foundation.icon.icx.Batch;
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.transport.jsonrpc.RpcArray;
+import foundation.icon.icx.transport.jsonrpc.RpcCodec;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSocketProviderTest {
+    private MockWebServer server;
+    private WebSocketProvider provider;
+    private IconService iconService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        provider = new WebSocketProvider(server.url("/api/v3").toString());
+        iconService = new IconService(provider);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        provider.close();
+        server.shutdown();
+    }
+
+    // Answers the requests with their ids as the results, in the reverse order of every group of the requests
+    private static class ReversingServer extends WebSocketListener {
+        private final int group;
+        private final List<String> responses = new ArrayList<>();
+        int connections;
+
+        ReversingServer(int group) {
+            this.group = group;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            connections++;
+        }
+
+        @Override
+        public synchronized void onMessage(WebSocket webSocket, String text) {
+            try {
+                RpcItem item = RpcCodec.readItem(text);
+                if (item instanceof RpcArray) {
+                    StringBuilder builder = new StringBuilder("[");
+                    for (RpcItem request : (RpcArray) item) {
+                        if (builder.length() > 1) builder.append(',');
+                        builder.append(respond(request.asObject()));
+                    }
+                    webSocket.send(builder.append(']').toString());
+                    return;
+                }
+                responses.add(respond(item.asObject()));
+            } catch (IOException e) {
+                webSocket.close(1011, e.getMessage());
+                return;
+            }
+            if (responses.size() == group) {
+                for (int i = responses.size() - 1; i >= 0; i--) {
+                    webSocket.send(responses.get(i));
+                }
+                responses.clear();
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(1000, null);
+        }
+
+        private String respond(RpcObject request) {
+            BigInteger id = request.getItem("id").asInteger();
+            if ("icx_getBalance".equals(request.getItem("method").asString())) {
+                return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"error\":{\"code\":-32602,\"message\":\"Invalid params\"}}";
+            }
+            return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":\"0x" + id.toString(16) + "\"}";
+        }
+    }
+
+    @Test
+    void testOutOfOrderResponses() throws Exception {
+        ReversingServer listener = new ReversingServer(10);
+        server.enqueue(new MockResponse().withWebSocketUpgrade(listener));
+
+        List<CompletableFuture<BigInteger>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(iconService.getTotalSupply().executeAsync());
+        }
+        List<BigInteger> ids = new ArrayList<>();
+        for (CompletableFuture<BigInteger> future : futures) {
+            BigInteger id = future.get(5, TimeUnit.SECONDS);
+            assertTrue(!ids.contains(id));
+            ids.add(id);
+        }
+        assertEquals(1, listener.connections);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testExecute() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ReversingServer(1)));
+
+        BigInteger first = iconService.getTotalSupply().execute();
+        BigInteger second = iconService.getTotalSupply().execute();
+        assertEquals(first.add(BigInteger.ONE), second);
+
+        RpcError error = assertThrows(RpcError.class, () ->
+                iconService.getBalance(new foundation.icon.icx.data.Address("hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31")).execute());
+        assertEquals(-32602, error.getCode());
+    }
+
+    @Test
+    void testBatch() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ReversingServer(1)));
+
+        Batch batch = iconService.batch();
+        Batch.Entry<BigInteger> first = batch.add(service -> service.getTotalSupply());
+        Batch.Entry<BigInteger> second = batch.add(service -> service.getTotalSupply());
+        batch.execute();
+        // the results are the ids sent on the socket, restored to the ids of the batch
+        assertEquals(first.get().add(BigInteger.ONE), second.get());
+    }
+
+    @Test
+    void testConnectionFailure() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                webSocket.close(1001, "Going away");
+            }
+        }));
+        CompletableFuture<BigInteger> future = iconService.getTotalSupply().executeAsync();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+
+        // reconnects for the next request
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new ReversingServer(1)));
+        iconService.getTotalSupply().execute();
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void testUnmatchedFrame() throws Exception {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                webSocket.send("{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,\"message\":\"Invalid\"}}");
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
+            }
+        }));
+        // the error without an id fails the waiting request instead of leaving it blocked
+        RpcError e = assertThrows(RpcError.class, () -> iconService.getTotalSupply().execute());
+        assertEquals(-32600, e.getCode());
+    }
+
+    @Test
+    void testDefaultTimeout() throws Exception {
+        provider.close();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(200, TimeUnit.MILLISECONDS)
+                .build();
+        provider = new WebSocketProvider(client, server.url("/api/v3").toString());
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
+            }
+        }));
+        // the response never arrives
+        assertThrows(InterruptedIOException.class, () -> new IconService(provider).getTotalSupply().execute());
+    }
+}
@@ -21,8 +21,10 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -99,4 +101,35 @@ class DeserializerTest {
         assertEquals(0, rpcItem.asByteArray().length);
         assertArrayEquals(new byte[0], rpcItem.asByteArray());
     }
+
+    @Test
+    void testNestedItems() throws IOException {
+        String json = "{\"a\":[[1,true],[],{\"b\":{\"c\":[null,\"0x1\"]}}],\"d\":{}," +
+                "\"big\":123456789012345678901234567890,\"float\":1.5,\"e\":\"end\"}";
+        RpcObject root = mapper.readValue(json, RpcItem.class).asObject();
+
+        RpcArray a = root.getItem("a").asArray();
+        assertEquals(3, a.size());
+        assertEquals(BigInteger.ONE, a.get(0).asArray().get(0).asInteger());
+        assertTrue(a.get(0).asArray().get(1).asBoolean());
+        assertEquals(0, a.get(1).asArray().size());
+        RpcArray c = a.get(2).asObject().getItem("b").asObject().getItem("c").asArray();
+        assertTrue(c.get(0).isNull());
+        assertEquals(BigInteger.ONE, c.get(1).asInteger());
+        assertTrue(root.getItem("d").asObject().isEmpty());
+        assertEquals("123456789012345678901234567890", root.getItem("big").asString());
+        assertEquals("1.5", root.getItem("float").asString());
+        assertEquals("end", root.getItem("e").asString());
+    }
+
+    @Test
+    void testStreamingResponse() throws IOException {
+        String json = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"height\":\"0x10\",\"list\":[\"0x1\"]}}";
+        Response response = RpcCodec.readResponse(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1, response.getId());
+        RpcObject result = response.getResult().asObject();
+        assertEquals(BigInteger.valueOf(16), result.getItem("height").asInteger());
+        assertEquals(BigInteger.ONE, result.getItem("list").asArray().get(0).asInteger());
+    }
 }
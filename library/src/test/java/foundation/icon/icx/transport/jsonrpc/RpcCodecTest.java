@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.jsonrpc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RpcCodecTest {
+
+    @Test
+    void testWriteRequest() throws IOException {
+        Request request = new Request(1, "icx_getBalance", new RpcObject.Builder()
+                .put("address", new RpcValue("hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31"))
+                .build());
+        String expected = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"icx_getBalance\"," +
+                "\"params\":{\"address\":\"hx4873b94352c8c1f3b2f09aaeccea31ce9e90bd31\"}}";
+        assertEquals(expected, RpcCodec.writeAsString(request));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RpcCodec.write(out, request);
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        // null params should be omitted
+        assertEquals("{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"icx_getLastBlock\"}",
+                RpcCodec.writeAsString(new Request(2, "icx_getLastBlock", null)));
+    }
+
+    @Test
+    void testReadResponse() throws IOException {
+        Response response = RpcCodec.readResponse(
+                "{\"jsonrpc\":\"2.0\",\"id\":3,\"result\":{\"height\":\"0x10\"},\"unknown\":1}");
+        assertEquals(3, response.getId());
+        assertNull(response.getError());
+        assertEquals(BigInteger.valueOf(16), response.getResult().asObject().getItem("height").asInteger());
+
+        response = RpcCodec.readResponse(
+                "{\"jsonrpc\":\"2.0\",\"id\":4,\"error\":{\"code\":-32602,\"message\":\"Invalid params\"}}");
+        assertEquals(-32602, response.getError().getCode());
+        assertEquals("Invalid params", response.getError().getMessage());
+    }
+
+    @Test
+    void testReadBatchResponse() throws IOException {
+        Response[] responses = RpcCodec.readBatchResponse(
+                "[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x1\"},{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":\"0x2\"}]");
+        assertEquals(2, responses.length);
+        assertEquals(BigInteger.valueOf(2), responses[1].getResult().asInteger());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HistogramMetricsTest {
+    private static final String ENDPOINT = "http://localhost:9000";
+
+    @Test
+    void testClearInFlight() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        metrics.onStart(ENDPOINT, "icx_call");
+        metrics.onStart(ENDPOINT, "icx_call");
+        metrics.onEnd(newMetrics());
+
+        metrics.clear();
+        assertNull(metrics.getStats(ENDPOINT, "icx_call"));
+
+        // the call started before clear() ends after it
+        metrics.onEnd(newMetrics());
+        HistogramMetrics.Stats stats = metrics.getStats(ENDPOINT, "icx_call");
+        assertEquals(1, stats.getRequestCount());
+        assertEquals(0, stats.getInFlight());
+
+        metrics.onStart(ENDPOINT, "icx_call");
+        assertEquals(1, stats.getInFlight());
+    }
+
+    private static CallMetrics newMetrics() {
+        long[] durations = new long[CallMetrics.Phase.values().length];
+        return new CallMetrics(ENDPOINT, "icx_call", durations, 10, 20, null, true);
+    }
+}
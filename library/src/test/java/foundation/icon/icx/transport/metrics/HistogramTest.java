@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void testBuckets() {
+        for (long value : new long[]{0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            int index = Histogram.indexOf(value);
+            assertTrue(Histogram.lowestEquivalentValue(index) <= value);
+            assertTrue(Histogram.highestEquivalentValue(index) >= value);
+            // the relative error is bounded by the sub-buckets
+            assertTrue(Histogram.highestEquivalentValue(index) - Histogram.lowestEquivalentValue(index)
+                    <= Math.max(0, value / 16));
+        }
+        assertEquals(Histogram.indexOf(64) - 1, Histogram.indexOf(63));
+    }
+
+    @Test
+    void testPercentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000);
+        }
+        histogram.record(-1);
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 0.001);
+        assertWithin(5_000_000, histogram.getValueAtPercentile(50));
+        assertWithin(9_900_000, histogram.getValueAtPercentile(99));
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= expected / 16, "expected " + expected + " but " + actual);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.data.Block;
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingProviderTest {
+    private StubProvider stub;
+    private CachingProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        stub = new StubProvider("stub", request -> StubProvider.block(10));
+        provider = new CachingProvider.Builder(stub)
+                .maxSize(2)
+                .build();
+    }
+
+    private static Request blockRequest(long height) {
+        RpcObject params = new RpcObject.Builder()
+                .put("height", new RpcValue(BigInteger.valueOf(height)))
+                .build();
+        return new Request(height, "icx_getBlockByHeight", params);
+    }
+
+    @Test
+    void testCache() throws Exception {
+        Block block = provider.request(blockRequest(10), Converters.BLOCK).execute();
+        assertEquals(BigInteger.TEN, block.getHeight());
+        block = provider.request(blockRequest(10), Converters.BLOCK).execute();
+        assertEquals(BigInteger.TEN, block.getHeight());
+        block = provider.request(blockRequest(10), Converters.BLOCK).executeAsync().get(5, TimeUnit.SECONDS);
+        assertEquals(BigInteger.TEN, block.getHeight());
+        assertEquals(1, stub.count.get());
+        assertEquals(2, provider.getHitCount());
+        assertEquals(1, provider.getMissCount());
+    }
+
+    @Test
+    void testEviction() throws IOException {
+        provider.request(blockRequest(1), Converters.BLOCK).execute();
+        provider.request(blockRequest(2), Converters.BLOCK).execute();
+        // touches the first one, so the second one is evicted
+        provider.request(blockRequest(1), Converters.BLOCK).execute();
+        provider.request(blockRequest(3), Converters.BLOCK).execute();
+        assertEquals(2, provider.size());
+        assertEquals(1, provider.getEvictionCount());
+
+        provider.request(blockRequest(1), Converters.BLOCK).execute();
+        assertEquals(3, stub.count.get());
+        provider.request(blockRequest(2), Converters.BLOCK).execute();
+        assertEquals(4, stub.count.get());
+    }
+
+    @Test
+    void testNotCached() throws Exception {
+        provider.request(new Request(1, "icx_getLastBlock", null), Converters.BLOCK).execute();
+        provider.request(new Request(2, "icx_getLastBlock", null), Converters.BLOCK).execute();
+        assertEquals(2, stub.count.get());
+
+        // errors are not cached
+        stub.count.set(0);
+        stub.setHandler(request -> {
+            throw new RpcError(-32602, "Invalid params");
+        });
+        assertThrows(RpcError.class, () -> provider.request(blockRequest(100), Converters.BLOCK).execute());
+        assertThrows(RpcError.class, () -> provider.request(blockRequest(100), Converters.BLOCK).execute());
+        assertEquals(2, stub.count.get());
+
+        // pending transactions are not cached
+        stub.count.set(0);
+        stub.setHandler(request -> new RpcObject.Builder()
+                .put("txHash", new RpcValue("0x1234"))
+                .build());
+        RpcObject params = new RpcObject.Builder()
+                .put("txHash", new RpcValue("0x1234"))
+                .build();
+        provider.request(new Request(3, "icx_getTransactionByHash", params), Converters.RPC_ITEM).execute();
+        provider.request(new Request(4, "icx_getTransactionByHash", params), Converters.RPC_ITEM).execute();
+        assertEquals(2, stub.count.get());
+    }
+}
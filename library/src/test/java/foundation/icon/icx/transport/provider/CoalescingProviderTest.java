@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.data.Block;
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingProviderTest {
+
+    private static StubProvider.Handler blocking(CountDownLatch latch, StubProvider.Handler handler) {
+        return request -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return handler.handle(request);
+        };
+    }
+
+    @Test
+    void testCoalesce() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        StubProvider stub = new StubProvider("stub", blocking(latch, request -> StubProvider.block(10)));
+        CoalescingProvider provider = new CoalescingProvider(stub);
+
+        List<CompletableFuture<Block>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(provider.request(new Request(i, "icx_getLastBlock", null), Converters.BLOCK).executeAsync());
+        }
+        CompletableFuture<Block> sync = CompletableFuture.supplyAsync(() -> {
+            try {
+                return provider.request(new Request(5, "icx_getLastBlock", null), Converters.BLOCK).execute();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (provider.getCoalescedCount() < 5) {
+            Thread.sleep(1);
+        }
+        latch.countDown();
+
+        Block block = sync.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Block> future : futures) {
+            assertSame(block, future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, stub.count.get());
+        assertEquals(5, provider.getCoalescedCount());
+
+        // the next request makes a new call
+        provider.request(new Request(6, "icx_getLastBlock", null), Converters.BLOCK).execute();
+        assertEquals(2, stub.count.get());
+    }
+
+    @Test
+    void testFailure() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        StubProvider stub = new StubProvider("stub", blocking(latch, request -> {
+            throw new RpcError(-32602, "Invalid params");
+        }));
+        CoalescingProvider provider = new CoalescingProvider(stub);
+
+        CompletableFuture<Block> first = provider.request(new Request(1, "icx_getLastBlock", null), Converters.BLOCK)
+                .executeAsync();
+        CompletableFuture<Block> second = provider.request(new Request(2, "icx_getLastBlock", null), Converters.BLOCK)
+                .executeAsync();
+        // cancelling one does not affect the other
+        first.cancel(true);
+        latch.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RpcError);
+        assertEquals(1, stub.count.get());
+    }
+
+    @Test
+    void testTimeoutOfLeader() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        StubProvider stub = new StubProvider("stub", blocking(latch, request -> StubProvider.block(10)));
+        CoalescingProvider provider = new CoalescingProvider(stub);
+
+        CompletableFuture<Block> leader = provider.request(new Request(1, "icx_getLastBlock", null), Converters.BLOCK)
+                .timeout(100, TimeUnit.MILLISECONDS)
+                .executeAsync();
+        CompletableFuture<Block> follower = provider.request(new Request(2, "icx_getLastBlock", null), Converters.BLOCK)
+                .executeAsync();
+        // the time limit of the leader applies only to itself
+        ExecutionException e = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof InterruptedIOException);
+        latch.countDown();
+
+        assertEquals(BigInteger.TEN, follower.get(5, TimeUnit.SECONDS).getHeight());
+        assertEquals(1, stub.count.get());
+    }
+
+    @Test
+    void testExecutorOfFollower() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        StubProvider stub = new StubProvider("stub", blocking(latch, request -> StubProvider.block(10)));
+        CoalescingProvider provider = new CoalescingProvider(stub);
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "follower"));
+        try {
+            provider.request(new Request(1, "icx_getLastBlock", null), Converters.BLOCK).executeAsync();
+            CompletableFuture<String> thread = provider.request(new Request(2, "icx_getLastBlock", null),
+                    Converters.BLOCK).executeAsync(executor).thenApply(block -> Thread.currentThread().getName());
+            latch.countDown();
+            // the follower is completed on the executor it has asked for
+            assertEquals("follower", thread.get(5, TimeUnit.SECONDS));
+            assertEquals(1, stub.count.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testCancelAll() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        StubProvider stub = new StubProvider("stub", blocking(latch, request -> StubProvider.block(10)));
+        CoalescingProvider provider = new CoalescingProvider(stub);
+
+        foundation.icon.icx.Request<Block> first = provider.request(new Request(1, "icx_getLastBlock", null),
+                Converters.BLOCK);
+        foundation.icon.icx.Request<Block> second = provider.request(new Request(2, "icx_getLastBlock", null),
+                Converters.BLOCK);
+        CompletableFuture<Block> firstFuture = first.executeAsync();
+        CompletableFuture<Block> secondFuture = second.executeAsync();
+        first.cancel();
+        second.cancel();
+        assertTrue(firstFuture.isCancelled());
+        assertTrue(secondFuture.isCancelled());
+
+        // the abandoned call is not shared with the next request
+        latch.countDown();
+        provider.request(new Request(3, "icx_getLastBlock", null), Converters.BLOCK).execute();
+        assertEquals(1, provider.getCoalescedCount());
+    }
+
+    @Test
+    void testNotCoalesced() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        StubProvider stub = new StubProvider("stub", blocking(latch, request -> new RpcValue("0x1234")));
+        CoalescingProvider provider = new CoalescingProvider(stub);
+
+        CompletableFuture<RpcValue> first = provider.request(new Request(1, "icx_sendTransaction", null),
+                Converters.RPC_ITEM).executeAsync().thenApply(item -> (RpcValue) item);
+        CompletableFuture<RpcValue> second = provider.request(new Request(2, "icx_sendTransaction", null),
+                Converters.RPC_ITEM).executeAsync().thenApply(item -> (RpcValue) item);
+        latch.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, stub.count.get());
+        assertEquals(0, provider.getCoalescedCount());
+    }
+}
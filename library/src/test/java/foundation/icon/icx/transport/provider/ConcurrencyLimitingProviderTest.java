@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitingProviderTest {
+    private ConcurrencyLimitingProvider provider;
+
+    @AfterEach
+    void tearDown() {
+        provider.close();
+    }
+
+    @Test
+    void testLimit() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        StubProvider stub = new StubProvider("stub", request -> {
+            int n = running.incrementAndGet();
+            maxRunning.accumulateAndGet(n, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            running.decrementAndGet();
+            return new RpcValue("ok");
+        });
+        provider = new ConcurrencyLimitingProvider.Builder(stub)
+                .limit(2, 2, 2)
+                .build();
+
+        List<CompletableFuture<RpcItem>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(provider.request(new Request(i, "icx_getTransactionResult", null), Converters.RPC_ITEM)
+                    .executeAsync());
+        }
+        for (CompletableFuture<RpcItem> future : futures) {
+            assertEquals("ok", future.get(5, TimeUnit.SECONDS).asString());
+        }
+        assertEquals(10, stub.count.get());
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(0, provider.getInFlight());
+        assertEquals(0, provider.getQueueSize());
+    }
+
+    @Test
+    void testRejection() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        StubProvider stub = new StubProvider("stub", request -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new RpcValue("ok");
+        });
+        provider = new ConcurrencyLimitingProvider.Builder(stub)
+                .limit(1, 1, 1)
+                .queue(1, 50, TimeUnit.MILLISECONDS)
+                .build();
+
+        CompletableFuture<RpcItem> first = provider.request(new Request(1, "icx_call", null), Converters.RPC_ITEM)
+                .executeAsync();
+        CompletableFuture<RpcItem> queued = provider.request(new Request(2, "icx_call", null), Converters.RPC_ITEM)
+                .executeAsync();
+        // the queue is full
+        assertThrows(ConcurrencyLimitExceededException.class, () ->
+                provider.request(new Request(3, "icx_call", null), Converters.RPC_ITEM).execute());
+        // the queued one times out
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ConcurrencyLimitExceededException);
+        assertEquals(2, provider.getRejectedCount());
+
+        latch.countDown();
+        assertEquals("ok", first.get(5, TimeUnit.SECONDS).asString());
+        assertEquals(1, stub.count.get());
+        assertEquals(0, provider.getInFlight());
+    }
+
+    @Test
+    void testAdaptation() throws IOException {
+        StubProvider stub = new StubProvider("stub", request -> new RpcValue("ok"));
+        provider = new ConcurrencyLimitingProvider.Builder(stub)
+                .limit(10, 1, 100)
+                .build();
+
+        // the limit shrinks while the endpoint fails
+        stub.setHandler(request -> {
+            throw new IOException("timeout");
+        });
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IOException.class, () ->
+                    provider.request(new Request(1, "icx_call", null), Converters.RPC_ITEM).execute());
+        }
+        assertTrue(provider.getLimit() < 10);
+        assertTrue(provider.getLimit() >= 1);
+
+        // and it does not grow without the load
+        stub.setHandler(request -> new RpcValue("ok"));
+        int limit = provider.getLimit();
+        for (int i = 0; i < 10; i++) {
+            provider.request(new Request(1, "icx_call", null), Converters.RPC_ITEM).execute();
+        }
+        assertTrue(provider.getLimit() <= limit);
+    }
+
+    @Test
+    void testWaitNotSampled() throws IOException {
+        StubProvider stub = new StubProvider("stub", request -> {
+            if ("icx_waitTransactionResult".equals(request.getMethod())) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return new RpcValue("ok");
+        });
+        provider = new ConcurrencyLimitingProvider.Builder(stub)
+                .limit(10, 1, 100)
+                .build();
+
+        provider.request(new Request(1, "icx_call", null), Converters.RPC_ITEM).execute();
+        // the long polls do not look like an overloaded endpoint
+        for (int i = 0; i < 5; i++) {
+            provider.request(new Request(2, "icx_waitTransactionResult", null), Converters.RPC_ITEM).execute();
+        }
+        assertEquals(10, provider.getLimit());
+        assertEquals(0, provider.getInFlight());
+    }
+
+    @Test
+    void testMixedLatencies() throws IOException {
+        StubProvider stub = new StubProvider("stub", request -> {
+            try {
+                Thread.sleep("icx_getBalance".equals(request.getMethod()) ? 20 : 100);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new RpcValue("ok");
+        });
+        provider = new ConcurrencyLimitingProvider.Builder(stub)
+                .limit(10, 1, 100)
+                .latencyTolerance(3)
+                .build();
+
+        // the slow method is compared with its own latency rather than with the fast one,
+        // which would shrink the limit to 3 while a hiccup of the scheduler may shrink it once or twice
+        for (int i = 0; i < 10; i++) {
+            provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM).execute();
+            provider.request(new Request(2, "icx_getBlockByHeight", null), Converters.RPC_ITEM).execute();
+        }
+        assertTrue(provider.getLimit() >= 8);
+    }
+}
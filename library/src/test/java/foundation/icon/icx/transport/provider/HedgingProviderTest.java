@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingProviderTest {
+    private StubProvider slow;
+    private StubProvider fast;
+    private HedgingProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        slow = new StubProvider("slow", request -> new RpcValue("slow"));
+        fast = new StubProvider("fast", request -> new RpcValue("fast"));
+        slow.setDelay(1000);
+        provider = new HedgingProvider.Builder()
+                .endpoint(slow)
+                .endpoint(fast)
+                .initialDelay(20, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.close();
+    }
+
+    @Test
+    void testHedge() throws IOException {
+        long start = System.nanoTime();
+        RpcItem result = provider.request(new Request(1, "icx_getBlockByHeight", null), Converters.RPC_ITEM).execute();
+        assertEquals("fast", result.asString());
+        assertEquals(1, slow.count.get());
+        assertEquals(1, fast.count.get());
+        assertEquals(1, provider.getRequestCount());
+        assertEquals(1, provider.getHedgeCount());
+        assertEquals(1, provider.getHedgeWinCount());
+        assertEquals(1.0, provider.getHedgeRate());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+        // the next request goes to the fast one first and is not hedged
+        result = provider.request(new Request(2, "icx_call", null), Converters.RPC_ITEM).execute();
+        assertEquals("fast", result.asString());
+        assertEquals(2, provider.getRequestCount());
+        assertEquals(1, provider.getHedgeCount());
+    }
+
+    @Test
+    void testHedgeOnFailure() throws IOException {
+        slow.setDelay(0);
+        slow.setHandler(request -> {
+            throw new IOException("connection reset");
+        });
+        RpcItem result = provider.request(new Request(1, "icx_getLastBlock", null), Converters.RPC_ITEM).execute();
+        assertEquals("fast", result.asString());
+        assertEquals(1, provider.getHedgeCount());
+    }
+
+    @Test
+    void testNoHedgeOnRpcError() {
+        slow.setDelay(0);
+        slow.setHandler(request -> {
+            throw new RpcError(-32602, "Invalid params");
+        });
+        assertThrows(RpcError.class, () ->
+                provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM).execute());
+        assertEquals(0, fast.count.get());
+    }
+
+    @Test
+    void testNoHedgeForSendTransaction() {
+        slow.setDelay(100);
+        slow.setHandler(request -> {
+            throw new IOException("timeout");
+        });
+        assertThrows(IOException.class, () ->
+                provider.request(new Request(1, "icx_sendTransaction", null), Converters.RPC_ITEM).execute());
+        assertEquals(1, slow.count.get());
+        assertEquals(0, fast.count.get());
+        assertEquals(0, provider.getRequestCount());
+    }
+
+    @Test
+    void testLatencyFromFirstAttempt() throws IOException {
+        provider.close();
+        provider = new HedgingProvider.Builder()
+                .endpoint(slow)
+                .endpoint(fast)
+                .initialDelay(50, TimeUnit.MILLISECONDS)
+                .minDelay(1, TimeUnit.MILLISECONDS)
+                .windowSize(1)
+                .build();
+        assertEquals("fast", provider.request(new Request(1, "icx_getLastBlock", null), Converters.RPC_ITEM)
+                .execute().asString());
+        // the hedge won after the delay, so the delay does not shrink to the latency of the hedge alone
+        assertTrue(provider.getHedgeDelay() >= 50);
+    }
+
+    @Test
+    void testSingleEndpoint() throws IOException {
+        provider.close();
+        slow.setDelay(100);
+        provider = new HedgingProvider.Builder()
+                .endpoint(slow)
+                .initialDelay(10, TimeUnit.MILLISECONDS)
+                .build();
+        assertEquals("slow", provider.request(new Request(1, "icx_getLastBlock", null), Converters.RPC_ITEM)
+                .execute().asString());
+        assertEquals(1, slow.count.get());
+        assertEquals(0, provider.getHedgeCount());
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.IconService;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancingProviderTest {
+
+    @Test
+    void testRouteByLatency() throws IOException {
+        StubProvider slow = new StubProvider("slow", request -> new RpcValue(BigInteger.ONE));
+        StubProvider fast = new StubProvider("fast", request -> new RpcValue(BigInteger.ONE));
+        slow.setDelay(30);
+        LoadBalancingProvider provider = new LoadBalancingProvider.Builder()
+                .endpoint(slow)
+                .endpoint(fast)
+                .probeInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+        IconService iconService = new IconService(provider);
+
+        for (int i = 0; i < 10; i++) {
+            iconService.getTotalSupply().execute();
+        }
+        assertEquals(1, slow.count.get());
+        assertEquals(9, fast.count.get());
+        assertTrue(provider.getEndpoints().get(0).getLatency() > provider.getEndpoints().get(1).getLatency());
+    }
+
+    @Test
+    void testEjectAndProbe() throws IOException {
+        StubProvider broken = new StubProvider("broken", request -> {
+            throw new IOException("connection refused");
+        });
+        StubProvider healthy = new StubProvider("healthy", request -> new RpcValue(BigInteger.ONE));
+        LoadBalancingProvider provider = new LoadBalancingProvider.Builder()
+                .endpoint(broken)
+                .endpoint(healthy)
+                .failureThreshold(2)
+                .probeInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+        IconService iconService = new IconService(provider);
+        LoadBalancingProvider.Endpoint endpoint = provider.getEndpoints().get(0);
+
+        // both have no latency yet, so the first one is tried until it is ejected
+        assertThrows(IOException.class, () -> iconService.getTotalSupply().execute());
+        assertTrue(endpoint.isHealthy());
+        assertThrows(IOException.class, () -> iconService.getTotalSupply().execute());
+        assertFalse(endpoint.isHealthy());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(BigInteger.ONE, iconService.getTotalSupply().execute());
+        }
+        assertEquals(2, broken.count.get());
+
+        // a jsonrpc error is not a failure of the endpoint
+        healthy.setHandler(request -> {
+            throw new RpcError(-32602, "Invalid params");
+        });
+        for (int i = 0; i < 5; i++) {
+            assertThrows(RpcError.class, () -> iconService.getTotalSupply().execute());
+        }
+        assertTrue(provider.getEndpoints().get(1).isHealthy());
+
+        // the probe brings the endpoint back
+        broken.setHandler(request -> StubProvider.block(100));
+        healthy.setHandler(request -> StubProvider.block(100));
+        provider.probe();
+        assertTrue(endpoint.isHealthy());
+        assertEquals(BigInteger.valueOf(100), endpoint.getHeight());
+    }
+
+    @Test
+    void testHungProbe() throws Exception {
+        CountDownLatch hang = new CountDownLatch(1);
+        StubProvider hung = new StubProvider("hung", request -> {
+            try {
+                hang.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return StubProvider.block(100);
+        });
+        StubProvider healthy = new StubProvider("healthy", request -> StubProvider.block(100));
+        LoadBalancingProvider provider = new LoadBalancingProvider.Builder()
+                .endpoint(hung)
+                .endpoint(healthy)
+                .probeInterval(50, TimeUnit.MILLISECONDS)
+                .build();
+        try {
+            // the probes go on, and the hung endpoint is ejected
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (healthy.count.get() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(healthy.count.get() >= 3);
+            assertFalse(provider.getEndpoints().get(0).isHealthy());
+        } finally {
+            hang.countDown();
+            provider.close();
+        }
+    }
+
+    @Test
+    void testAvoidLaggingEndpoint() throws IOException {
+        StubProvider behind = new StubProvider("behind", request -> StubProvider.block(90));
+        StubProvider latest = new StubProvider("latest", request -> StubProvider.block(100));
+        LoadBalancingProvider provider = new LoadBalancingProvider.Builder()
+                .endpoint(behind)
+                .endpoint(latest)
+                .maxHeightLag(5)
+                .probeInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+        provider.probe();
+        assertTrue(provider.getEndpoints().get(0).isLagging());
+        assertFalse(provider.getEndpoints().get(1).isLagging());
+
+        behind.count.set(0);
+        latest.count.set(0);
+        IconService iconService = new IconService(provider);
+        for (int i = 0; i < 5; i++) {
+            iconService.getLastBlock().execute();
+        }
+        assertEquals(0, behind.count.get());
+        assertEquals(5, latest.count.get());
+    }
+
+    @Test
+    void testTransactionAffinity() throws IOException {
+        String txHash = "0x2600770376fbf291d3d445054d45ed15280dd33c2038931aace3f7ea2ab59dbc";
+        AtomicBoolean finalized = new AtomicBoolean();
+        StubProvider.Handler handler = request -> {
+            if ("icx_sendTransaction".equals(request.getMethod())) {
+                return new RpcValue(txHash);
+            }
+            RpcObject.Builder builder = new RpcObject.Builder().put("txHash", new RpcValue(txHash));
+            if (finalized.get()) {
+                builder.put("blockHeight", new RpcValue(BigInteger.TEN));
+            }
+            return builder.build();
+        };
+        StubProvider first = new StubProvider("first", handler);
+        StubProvider second = new StubProvider("second", handler);
+        LoadBalancingProvider provider = new LoadBalancingProvider.Builder()
+                .endpoint(first)
+                .endpoint(second)
+                .probeInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        // the first one accepts the transaction, and then the second one has the lower cost
+        Bytes hash = provider.request(new Request(1, "icx_sendTransaction", null), Converters.BYTES).execute();
+        assertEquals(txHash, hash.toString());
+        assertEquals(1, first.count.get());
+        assertEquals(1, provider.getAffinityCount());
+        provider.request(new Request(2, "icx_getTotalSupply", null), Converters.RPC_ITEM).execute();
+        assertEquals(1, second.count.get());
+
+        // the requests for the transaction go to the first one until it is found in a block
+        RpcObject params = new RpcObject.Builder().put("txHash", new RpcValue(hash)).build();
+        provider.request(new Request(3, "icx_getTransactionResult", params), Converters.RPC_ITEM).execute();
+        assertEquals(2, first.count.get());
+        assertEquals(1, provider.getAffinityCount());
+        finalized.set(true);
+        provider.request(new Request(4, "icx_getTransactionResult", params), Converters.RPC_ITEM).execute();
+        assertEquals(3, first.count.get());
+        assertEquals(0, provider.getAffinityCount());
+    }
+
+    @Test
+    void testSession() throws IOException {
+        StubProvider first = new StubProvider("first", request -> new RpcValue(BigInteger.ONE));
+        StubProvider second = new StubProvider("second", request -> new RpcValue(BigInteger.ONE));
+        LoadBalancingProvider provider = new LoadBalancingProvider.Builder()
+                .endpoint(first)
+                .endpoint(second)
+                .failureThreshold(1)
+                .probeInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+        IconService session = new IconService(provider.session());
+
+        for (int i = 0; i < 3; i++) {
+            session.getTotalSupply().execute();
+        }
+        assertEquals(3, first.count.get());
+        assertEquals(0, second.count.get());
+
+        // another endpoint is selected when it fails
+        first.setHandler(request -> {
+            throw new IOException("connection refused");
+        });
+        assertThrows(IOException.class, () -> session.getTotalSupply().execute());
+        session.getTotalSupply().execute();
+        session.getTotalSupply().execute();
+        assertEquals(2, second.count.get());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.transport.jsonrpc.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class RequestKeysTest {
+
+    @Test
+    void testKey() {
+        RpcObject params1 = new RpcObject.Builder()
+                .put("a", new RpcValue("0x1"))
+                .put("b", new RpcValue("0x2"))
+                .build();
+        RpcObject params2 = new RpcObject.Builder()
+                .put("b", new RpcValue("0x2"))
+                .put("a", new RpcValue("0x1"))
+                .build();
+        assertEquals(RequestKeys.of(new Request(1, "icx_getDataByHash", params1)),
+                RequestKeys.of(new Request(2, "icx_getDataByHash", params2)));
+    }
+
+    @Test
+    void testDifferentKeys() {
+        RpcObject params1 = new RpcObject.Builder()
+                .put("hash", new RpcValue("0x1"))
+                .build();
+        RpcObject params2 = new RpcObject.Builder()
+                .put("hash", new RpcValue("0x2"))
+                .build();
+        assertNotEquals(RequestKeys.of(new Request(1, "icx_getDataByHash", params1)),
+                RequestKeys.of(new Request(1, "icx_getDataByHash", params2)));
+        assertNotEquals(RequestKeys.of(new Request(1, "icx_getBlockByHash", params1)),
+                RequestKeys.of(new Request(1, "icx_getDataByHash", params1)));
+    }
+
+    @Test
+    void testEscapedKeys() {
+        // {a: "x\",b=\"y"} is not {a: "x", b: "y"}
+        RpcObject params1 = new RpcObject.Builder()
+                .put("a", new RpcValue("x\",b=\"y"))
+                .build();
+        RpcObject params2 = new RpcObject.Builder()
+                .put("a", new RpcValue("x"))
+                .put("b", new RpcValue("y"))
+                .build();
+        assertNotEquals(RequestKeys.of(new Request(1, "icx_call", params1)),
+                RequestKeys.of(new Request(1, "icx_call", params2)));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.data.Converters;
+import foundation.icon.icx.transport.jsonrpc.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryingProviderTest {
+    private StubProvider stub;
+    private RetryingProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        stub = new StubProvider("stub", request -> new RpcValue("ok"));
+        provider = new RetryingProvider.Builder(stub)
+                .maxAttempts(3)
+                .backoff(1, 10, TimeUnit.MILLISECONDS)
+                .failureThreshold(3)
+                .openDuration(100, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.close();
+    }
+
+    private static StubProvider.Handler failing(int failures, IOException exception) {
+        AtomicInteger count = new AtomicInteger();
+        return request -> {
+            if (count.incrementAndGet() <= failures) {
+                throw exception;
+            }
+            return new RpcValue("ok");
+        };
+    }
+
+    @Test
+    void testRetry() throws IOException {
+        stub.setHandler(failing(2, new IOException("connection reset")));
+        RpcItem result = provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM).execute();
+        assertEquals("ok", result.asString());
+        assertEquals(3, stub.count.get());
+        assertEquals(2, provider.getRetryCount());
+        assertEquals(RetryingProvider.CircuitState.CLOSED, provider.getCircuitState());
+    }
+
+    @Test
+    void testRetryAsync() throws Exception {
+        stub.setHandler(failing(1, new RpcError(503, "Service Unavailable")));
+        RpcItem result = provider.request(new Request(1, "icx_call", null), Converters.RPC_ITEM)
+                .executeAsync().get(5, TimeUnit.SECONDS);
+        assertEquals("ok", result.asString());
+        assertEquals(2, stub.count.get());
+        assertEquals(1, provider.getRetryCount());
+    }
+
+    @Test
+    void testNoRetry() {
+        // jsonrpc errors are the answers of the node
+        stub.setHandler(failing(1, new RpcError(-32602, "Invalid params")));
+        assertThrows(RpcError.class, () ->
+                provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM).execute());
+        assertEquals(1, stub.count.get());
+
+        // the transactions are not retried
+        stub.count.set(0);
+        stub.setHandler(failing(1, new IOException("timeout")));
+        assertThrows(IOException.class, () ->
+                provider.request(new Request(2, "icx_sendTransaction", null), Converters.RPC_ITEM).execute());
+        assertEquals(1, stub.count.get());
+        assertEquals(0, provider.getRetryCount());
+    }
+
+    @Test
+    void testNoRetrySignedTransaction() {
+        // the first attempt may have reached the node, which would reject the retry as a duplicate
+        stub.setHandler(failing(1, new IOException("timeout")));
+        RpcObject params = new RpcObject.Builder()
+                .put("timestamp", new RpcValue("0x563a6cf330136"))
+                .put("signature", new RpcValue("VAia7YZ2Ji6igKWzjR2YsGa2m53nKPrfK7uXYW78QLE+ATehAVZPC40szvAiA6NEU5gCYB4c4qaQzqDh2ugcHgA="))
+                .build();
+        assertThrows(IOException.class, () ->
+                provider.request(new Request(1, "icx_sendTransaction", params), Converters.RPC_ITEM).execute());
+        assertEquals(1, stub.count.get());
+        assertEquals(0, provider.getRetryCount());
+    }
+
+    @Test
+    void testRetryBudget() {
+        provider.close();
+        provider = new RetryingProvider.Builder(stub)
+                .maxAttempts(10)
+                .backoff(0, 0, TimeUnit.MILLISECONDS)
+                .retryBudget(0, 2)
+                .failureThreshold(100)
+                .build();
+        stub.setHandler(request -> {
+            throw new IOException("down");
+        });
+        assertThrows(IOException.class, () ->
+                provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM).execute());
+        assertEquals(3, stub.count.get());
+        assertEquals(2, provider.getRetryCount());
+    }
+
+    @Test
+    void testCircuitBreaker() throws Exception {
+        stub.setHandler(request -> {
+            throw new IOException("down");
+        });
+        assertThrows(IOException.class, () ->
+                provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM).execute());
+        assertEquals(3, stub.count.get());
+        assertEquals(RetryingProvider.CircuitState.OPEN, provider.getCircuitState());
+
+        // fails fast while the circuit is open
+        assertThrows(CircuitBreakerOpenException.class, () ->
+                provider.request(new Request(2, "icx_getBalance", null), Converters.RPC_ITEM).execute());
+        ExecutionException e = assertThrows(ExecutionException.class, () ->
+                provider.request(new Request(3, "icx_getBalance", null), Converters.RPC_ITEM).executeAsync().get());
+        assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        assertEquals(3, stub.count.get());
+
+        // a trial request closes the circuit after the open duration
+        Thread.sleep(150);
+        stub.setHandler(request -> new RpcValue("ok"));
+        RpcItem result = provider.request(new Request(4, "icx_getBalance", null), Converters.RPC_ITEM).execute();
+        assertEquals("ok", result.asString());
+        assertEquals(RetryingProvider.CircuitState.CLOSED, provider.getCircuitState());
+    }
+
+    @Test
+    void testTimeout() {
+        provider.close();
+        provider = new RetryingProvider.Builder(stub)
+                .maxAttempts(10)
+                .backoff(100, 100, TimeUnit.MILLISECONDS)
+                .failureThreshold(100)
+                .build();
+        stub.setHandler(request -> {
+            throw new IOException("down");
+        });
+        // gives up when the next retry would exceed the time limit, instead of sleeping past it
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM)
+                .timeout(50, TimeUnit.MILLISECONDS)
+                .execute());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertTrue(stub.count.get() < 10);
+
+        stub.setDelay(1000);
+        start = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class, () ->
+                provider.request(new Request(2, "icx_getBalance", null), Converters.RPC_ITEM)
+                        .timeout(50, TimeUnit.MILLISECONDS)
+                        .executeAsync().get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof InterruptedIOException);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        stub.setHandler(request -> {
+            throw new IOException("down");
+        });
+        foundation.icon.icx.Request<RpcItem> request = provider.request(new Request(1, "icx_getBalance", null), Converters.RPC_ITEM);
+        request.cancel();
+        assertThrows(IOException.class, request::execute);
+        assertEquals(0, stub.count.get());
+        assertEquals(0, provider.getRetryCount());
+    }
+}
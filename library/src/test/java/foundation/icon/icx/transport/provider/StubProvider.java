@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.icx.transport.provider;
+
+import foundation.icon.icx.Callback;
+import foundation.icon.icx.Provider;
+import foundation.icon.icx.Request;
+import foundation.icon.icx.transport.jsonrpc.RpcConverter;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A provider answering the requests with the given handler, for the tests of the decorators
+ */
+class StubProvider implements Provider {
+
+    interface Handler {
+        RpcItem handle(foundation.icon.icx.transport.jsonrpc.Request request) throws IOException;
+    }
+
+    private final String name;
+    private volatile Handler handler;
+    private volatile long delay;
+    final AtomicInteger count = new AtomicInteger();
+
+    StubProvider(String name, Handler handler) {
+        this.name = name;
+        this.handler = handler;
+    }
+
+    void setHandler(Handler handler) {
+        this.handler = handler;
+    }
+
+    void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    static RpcItem block(long height) {
+        return new RpcObject.Builder()
+                .put("height", new RpcValue(BigInteger.valueOf(height)))
+                .put("block_hash", new RpcValue("0x1fcf7c34dc875681761bdaa5d75d770e78e8166b5c4f06c226c53300cbe85f57"))
+                .build();
+    }
+
+    @Override
+    public <T> Request<T> request(foundation.icon.icx.transport.jsonrpc.Request request, RpcConverter<T> converter) {
+        return new Request<T>() {
+            @Override
+            public T execute() throws IOException {
+                count.incrementAndGet();
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return converter.convertTo(handler.handle(request));
+            }
+
+            @Override
+            public void execute(Callback<T> callback) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        callback.onSuccess(execute());
+                    } catch (Exception e) {
+                        callback.onFailure(e);
+                    }
+                });
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}